@@ -9,6 +9,7 @@ import org.stegosuite.application.embedding.ExtractingDoneListener;
 import org.stegosuite.image.embedding.EmbeddingMethod;
 import org.stegosuite.image.embedding.EmbeddingProgress;
 import org.stegosuite.image.embedding.Visualizer;
+import org.stegosuite.image.embedding.point.SpreadingMode;
 import org.stegosuite.image.format.ImageFormat;
 import org.stegosuite.model.exception.SteganoEmbedException;
 import org.stegosuite.model.exception.SteganoExtractException;
@@ -39,6 +40,14 @@ public class StegosuitePresenter implements EmbeddingDoneListener, ExtractingDon
 	public void setPointFilter(int value) {
 		this.embedding.setPointFilter(value);
 	}
+
+	public void setVisualizationEnabled(boolean enabled) {
+		this.embedding.setVisualizationEnabled(enabled);
+	}
+
+	public void setSpreadingMode(SpreadingMode spreadingMode) {
+		this.embedding.setSpreadingMode(spreadingMode);
+	}
 	
 	private Embedding embeddingFor(ImageFormat image) {
 		Embedding embedding = EmbeddingFactory.getEmbedding(image);
@@ -1,6 +1,7 @@
 package org.stegosuite.application.embedding;
 
 import org.stegosuite.image.embedding.EmbeddingProgress;
+import org.stegosuite.image.embedding.point.SpreadingMode;
 import org.stegosuite.model.exception.SteganoEmbedException;
 import org.stegosuite.model.exception.SteganoExtractException;
 import org.stegosuite.model.payload.Payload;
@@ -30,4 +31,21 @@ public abstract class Embedding {
 
 	public abstract void setPointFilter(int a);
 
+	/**
+	 * Enables or disables visualizing the pixels processed by the following embeddings and
+	 * extractions, see {@link org.stegosuite.image.embedding.EmbeddingMethod#getVisualizer()}
+	 *
+	 * @param visualizationEnabled
+	 */
+	public abstract void setVisualizationEnabled(boolean visualizationEnabled);
+
+	/**
+	 * Sets how the following embeddings spread the payload over the image. Only PNG and BMP
+	 * embeddings support more than one mode, the others ignore it. Extraction detects the mode on
+	 * its own.
+	 *
+	 * @param spreadingMode
+	 */
+	public void setSpreadingMode(SpreadingMode spreadingMode) {}
+
 }
@@ -1,10 +1,10 @@
 package org.stegosuite.application.embedding;
 
-import org.stegosuite.image.embedding.EmbeddingMethod;
 import org.stegosuite.image.embedding.EmbeddingProgress;
 import org.stegosuite.image.embedding.bmp.BMPLsbMultiColorChannel;
 import org.stegosuite.image.embedding.bmp.filter.BMPPointFilterHomogeneous;
 import org.stegosuite.image.embedding.bmp.filter.BMPPointFilterNone;
+import org.stegosuite.image.embedding.point.SpreadingMode;
 import org.stegosuite.image.format.BMPImage;
 import org.stegosuite.image.format.ImageFormat;
 import org.stegosuite.model.exception.SteganoEmbedException;
@@ -17,9 +17,9 @@ import org.stegosuite.model.payload.Payload;
 public class MyBMPLsbMultiColorChannel
 		extends Embedding {
 
-	private EmbeddingMethod<BMPImage> embeddable;
-	private EmbeddingMethod<BMPImage> embeddablePoint;
-	private EmbeddingMethod<BMPImage> embeddableNoPoint;
+	private BMPLsbMultiColorChannel embeddable;
+	private BMPLsbMultiColorChannel embeddablePoint;
+	private BMPLsbMultiColorChannel embeddableNoPoint;
 
 	public MyBMPLsbMultiColorChannel(ImageFormat image) {
 		embeddableNoPoint = new BMPLsbMultiColorChannel((BMPImage) image, new BMPPointFilterNone());
@@ -55,4 +55,16 @@ public class MyBMPLsbMultiColorChannel
 		}
 	}
 
+	@Override
+	public void setVisualizationEnabled(boolean visualizationEnabled) {
+		embeddablePoint.setVisualizationEnabled(visualizationEnabled);
+		embeddableNoPoint.setVisualizationEnabled(visualizationEnabled);
+	}
+
+	@Override
+	public void setSpreadingMode(SpreadingMode spreadingMode) {
+		embeddablePoint.setSpreadingMode(spreadingMode);
+		embeddableNoPoint.setSpreadingMode(spreadingMode);
+	}
+
 }
@@ -55,4 +55,10 @@ public class MyGIFSortedColorTable
 		}
 	}
 
+	@Override
+	public void setVisualizationEnabled(boolean visualizationEnabled) {
+		embeddablePoint.setVisualizationEnabled(visualizationEnabled);
+		embeddableNoPoint.setVisualizationEnabled(visualizationEnabled);
+	}
+
 }
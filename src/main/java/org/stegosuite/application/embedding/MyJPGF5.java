@@ -46,4 +46,9 @@ public class MyJPGF5
 		// no point filter used
 	}
 
+	@Override
+	public void setVisualizationEnabled(boolean visualizationEnabled) {
+		embeddable.setVisualizationEnabled(visualizationEnabled);
+	}
+
 }
@@ -1,10 +1,10 @@
 package org.stegosuite.application.embedding;
 
-import org.stegosuite.image.embedding.EmbeddingMethod;
 import org.stegosuite.image.embedding.EmbeddingProgress;
 import org.stegosuite.image.embedding.png.PNGLsbMultiColorChannel;
 import org.stegosuite.image.embedding.png.filter.PNGPointFilterHomogeneous;
 import org.stegosuite.image.embedding.png.filter.PNGPointFilterNone;
+import org.stegosuite.image.embedding.point.SpreadingMode;
 import org.stegosuite.image.format.ImageFormat;
 import org.stegosuite.image.format.PNGImage;
 import org.stegosuite.model.exception.SteganoEmbedException;
@@ -17,9 +17,9 @@ import org.stegosuite.model.payload.Payload;
 public class MyPNGLsbMultiColorChannel
 		extends Embedding {
 
-	private EmbeddingMethod<PNGImage> embeddable;
-	private EmbeddingMethod<PNGImage> embeddablePoint;
-	private EmbeddingMethod<PNGImage> embeddableNoPoint;
+	private PNGLsbMultiColorChannel embeddable;
+	private PNGLsbMultiColorChannel embeddablePoint;
+	private PNGLsbMultiColorChannel embeddableNoPoint;
 
 	public MyPNGLsbMultiColorChannel(ImageFormat image) {
 		embeddableNoPoint = new PNGLsbMultiColorChannel((PNGImage) image, new PNGPointFilterNone());
@@ -55,4 +55,16 @@ public class MyPNGLsbMultiColorChannel
 		}
 	}
 
+	@Override
+	public void setVisualizationEnabled(boolean visualizationEnabled) {
+		embeddablePoint.setVisualizationEnabled(visualizationEnabled);
+		embeddableNoPoint.setVisualizationEnabled(visualizationEnabled);
+	}
+
+	@Override
+	public void setSpreadingMode(SpreadingMode spreadingMode) {
+		embeddablePoint.setSpreadingMode(spreadingMode);
+		embeddableNoPoint.setSpreadingMode(spreadingMode);
+	}
+
 }
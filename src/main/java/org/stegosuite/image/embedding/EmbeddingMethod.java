@@ -27,9 +27,15 @@ public abstract class EmbeddingMethod<T extends ImageFormat> {
 
 	/**
 	 * Keeps track of the processed pixels in the image. Needs to be properly initialized in the
-	 * implementing class and can then be used in the embed() and extract() methods.
+	 * implementing class and can then be used in the embed() and extract() methods. Is
+	 * {@link Visualizer#NONE} if visualization is disabled.
 	 */
-	protected Visualizer visualizer = null;
+	protected Visualizer visualizer = Visualizer.NONE;
+
+	/**
+	 * Whether the processed pixels should be visualized, off by default
+	 */
+	private boolean visualizationEnabled = false;
 
 	/**
 	 * Constructor
@@ -61,7 +67,8 @@ public abstract class EmbeddingMethod<T extends ImageFormat> {
 	protected abstract int doCapacity(T image);
 
 	/**
-	 * Embeds the payload into the carrier image
+	 * Embeds the payload into a copy of the carrier image. Only the parts of the carrier that are
+	 * modified are actually copied.
 	 * 
 	 * @param payload
 	 * @param progress
@@ -71,8 +78,10 @@ public abstract class EmbeddingMethod<T extends ImageFormat> {
 	public final T embed(Payload payload, EmbeddingProgress progress)
 			throws SteganoEmbedException {
 		@SuppressWarnings("unchecked")
-		T clonedImage = (T) this.image.clone();
-		this.visualizer = this.createVisualizer(clonedImage);
+		T clonedImage = (T) this.image.copyOnWrite();
+		// The copy is modified while embedding, so the visualizer has to share the pixels of the
+		// unmodified image
+		this.resetVisualizer(this.image);
 		this.doEmbed(clonedImage, payload, progress);
 		return clonedImage;
 	}
@@ -96,7 +105,7 @@ public abstract class EmbeddingMethod<T extends ImageFormat> {
 	 */
 	public final void extract(Payload payload, EmbeddingProgress progress)
 			throws SteganoExtractException {
-		this.visualizer = this.createVisualizer(this.image);
+		this.resetVisualizer(this.image);
 		this.doExtract(this.image, payload, progress);
 	}
 
@@ -114,10 +123,31 @@ public abstract class EmbeddingMethod<T extends ImageFormat> {
 	/**
 	 * Gets the current visualizer for this embedding method
 	 * 
-	 * @return
+	 * @return the visualizer, or null if visualization is disabled or not supported
 	 */
 	public Visualizer getVisualizer() {
-		return this.visualizer;
+		return this.visualizer.isEnabled() ? this.visualizer : null;
+	}
+
+	/**
+	 * Enables or disables visualizing the processed pixels of the following embeddings and
+	 * extractions. Visualization should only be enabled if the visualization is going to be shown.
+	 * 
+	 * @param visualizationEnabled
+	 */
+	public void setVisualizationEnabled(boolean visualizationEnabled) {
+		this.visualizationEnabled = visualizationEnabled;
+	}
+
+	/**
+	 * Replaces the current visualizer with a new one for the passed image, or with
+	 * {@link Visualizer#NONE} if visualization is disabled or not supported
+	 * 
+	 * @param image
+	 */
+	protected final void resetVisualizer(T image) {
+		Visualizer visualizer = visualizationEnabled ? this.createVisualizer(image) : null;
+		this.visualizer = visualizer != null ? visualizer : Visualizer.NONE;
 	}
 
 	/**
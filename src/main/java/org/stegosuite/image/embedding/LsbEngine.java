@@ -0,0 +1,293 @@
+package org.stegosuite.image.embedding;
+
+import org.stegosuite.image.embedding.Visualizer.VisualizationMode;
+import org.stegosuite.image.embedding.point.PointSequence;
+import org.stegosuite.util.BitReader;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embeds bits into and extracts bits from the red, green and blue channel of the points of a
+ * {@link PointSequence}, 3 bits per point. Points are taken from the sequence in batches, and the
+ * bits of each batch are written or read by parallel tasks on the common {@link ForkJoinPool}.
+ * A batch never spans two iterations when embedding, so all points of a batch are distinct pixels
+ * and no two tasks touch the same pixel.
+ */
+public class LsbEngine {
+
+	/**
+	 * Maximum number of points taken from the sequence at once
+	 */
+	public static final int BATCH_SIZE = 1 << 20;
+
+	/**
+	 * Number of points up to which a task doesn't split itself any further
+	 */
+	private static final int CHUNK_SIZE = 1 << 14;
+
+	/**
+	 * Interval in which progress is reported while the tasks of a batch are running
+	 */
+	private static final long PROGRESS_INTERVAL_MS = 100;
+
+	private final LsbRaster raster;
+
+	private final PointSequence points;
+
+	private final Visualizer visualizer;
+
+	/**
+	 * Linear indices of the points of the current batch
+	 */
+	private int[] indices = new int[0];
+
+	/**
+	 * Index of the bit to embed into/extract from for each point of the current batch
+	 */
+	private byte[] bitIndices = new byte[0];
+
+	/**
+	 * A point that was taken from the sequence but belongs to the next batch, -1 if there is none
+	 */
+	private int pendingIndex = -1;
+
+	private int pendingIteration = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param raster The raster of the image to embed into or extract from
+	 * @param points The sequence of points to use
+	 * @param visualizer The visualizer to update for each processed point
+	 */
+	public LsbEngine(LsbRaster raster, PointSequence points, Visualizer visualizer) {
+		this.raster = raster;
+		this.points = points;
+		this.visualizer = visualizer;
+	}
+
+	/**
+	 * Embeds the first numBits bits of data, MSB of each byte first
+	 *
+	 * @param data
+	 * @param numBits
+	 * @param progress
+	 * @throws NoSuchElementException if the point sequence runs out of points
+	 */
+	public void embed(byte[] data, int numBits, EmbeddingProgress progress)
+			throws NoSuchElementException {
+		int totalPoints = (numBits + 2) / 3;
+		int numBytes = (numBits + 7) / 8;
+		AtomicInteger processedBits = new AtomicInteger();
+
+		for (int firstPoint = 0; firstPoint < totalPoints;) {
+			int count = nextBatch(Math.min(BATCH_SIZE, totalPoints - firstPoint), true);
+			// Only collected if they are visualized
+			boolean[] altered = visualizer.isEnabled() ? new boolean[count] : null;
+
+			run(new EmbedTask(data, numBits, firstPoint, 0, count, altered, processedBits), () -> {
+				if (progress != null) {
+					progress.progressUpdate(processedBits.get() / 8, numBytes);
+				}
+			});
+
+			if (altered != null) {
+				for (int i = 0; i < count; i++) {
+					visualizer.visualize(indices[i],
+							altered[i] ? VisualizationMode.ALTERED : VisualizationMode.UNALTERED);
+				}
+			}
+			firstPoint += count;
+		}
+	}
+
+	/**
+	 * Extracts the bits of the next pointCount points
+	 *
+	 * @param pointCount
+	 * @return one byte per point holding its 3 bits, the bit of the red channel in bit 2
+	 * @throws NoSuchElementException if the point sequence runs out of points
+	 */
+	public byte[] extract(int pointCount)
+			throws NoSuchElementException {
+		byte[] bits = new byte[pointCount];
+		for (int firstPoint = 0; firstPoint < pointCount;) {
+			int count = nextBatch(Math.min(BATCH_SIZE, pointCount - firstPoint), false);
+			run(new ExtractTask(bits, firstPoint, 0, count), () -> {});
+
+			if (visualizer.isEnabled()) {
+				for (int i = 0; i < count; i++) {
+					visualizer.visualize(indices[i], VisualizationMode.ALTERED);
+				}
+			}
+			firstPoint += count;
+		}
+		return bits;
+	}
+
+	/**
+	 * Takes up to maxCount points from the sequence into the batch arrays
+	 *
+	 * @param maxCount
+	 * @param singleIteration true to end the batch early when the iteration changes
+	 * @return the number of points in the batch
+	 */
+	private int nextBatch(int maxCount, boolean singleIteration) {
+		if (indices.length < maxCount) {
+			indices = new int[maxCount];
+			bitIndices = new byte[maxCount];
+		}
+
+		int count = 0;
+		while (count < maxCount) {
+			int index;
+			int iteration;
+			if (pendingIndex >= 0) {
+				index = pendingIndex;
+				iteration = pendingIteration;
+				pendingIndex = -1;
+			} else {
+				index = points.nextIndex();
+				iteration = points.getIterationCount();
+			}
+
+			if (singleIteration && count > 0 && iteration - 1 != bitIndices[0]) {
+				pendingIndex = index;
+				pendingIteration = iteration;
+				break;
+			}
+
+			indices[count] = index;
+			bitIndices[count] = (byte) (iteration - 1);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Runs the task on the common pool, or on the current thread if the raster doesn't allow
+	 * parallel access, and reports progress while waiting
+	 */
+	private void run(ForkJoinTask<?> task, Runnable reportProgress) {
+		if (!raster.isParallelAccessSupported()) {
+			task.invoke();
+			reportProgress.run();
+			return;
+		}
+
+		ForkJoinPool.commonPool().execute(task);
+		while (true) {
+			try {
+				task.get(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+				break;
+			} catch (TimeoutException e) {
+				reportProgress.run();
+			} catch (InterruptedException e) {
+				task.cancel(true);
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		reportProgress.run();
+	}
+
+	/**
+	 * Embeds the bits of a range of points of the current batch
+	 */
+	private class EmbedTask
+			extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final byte[] data;
+		private final int numBits;
+		private final int firstPoint;
+		private final int from;
+		private final int to;
+		private final boolean[] altered;
+		private final AtomicInteger processedBits;
+
+		/**
+		 * @param firstPoint number of points embedded into before the current batch
+		 * @param from first point of the batch to process, inclusive
+		 * @param to last point of the batch to process, exclusive
+		 */
+		EmbedTask(byte[] data, int numBits, int firstPoint, int from, int to, boolean[] altered,
+				AtomicInteger processedBits) {
+			this.data = data;
+			this.numBits = numBits;
+			this.firstPoint = firstPoint;
+			this.from = from;
+			this.to = to;
+			this.altered = altered;
+			this.processedBits = processedBits;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > CHUNK_SIZE && raster.isParallelAccessSupported()) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new EmbedTask(data, numBits, firstPoint, from, middle, altered, processedBits),
+						new EmbedTask(data, numBits, firstPoint, middle, to, altered, processedBits));
+				return;
+			}
+
+			BitReader reader = new BitReader(data, numBits);
+			reader.seek((firstPoint + from) * 3);
+			for (int i = from; i < to; i++) {
+				int count = Math.min(3, reader.remaining());
+				boolean changed = raster.setBits(indices[i], bitIndices[i], (int) reader.readBits(count), count);
+				if (altered != null) {
+					altered[i] = changed;
+				}
+			}
+			processedBits.addAndGet(reader.position() - (firstPoint + from) * 3);
+		}
+	}
+
+	/**
+	 * Extracts the bits of a range of points of the current batch
+	 */
+	private class ExtractTask
+			extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final byte[] bits;
+		private final int firstPoint;
+		private final int from;
+		private final int to;
+
+		ExtractTask(byte[] bits, int firstPoint, int from, int to) {
+			this.bits = bits;
+			this.firstPoint = firstPoint;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > CHUNK_SIZE && raster.isParallelAccessSupported()) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ExtractTask(bits, firstPoint, from, middle), new ExtractTask(bits, firstPoint, middle, to));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				bits[firstPoint + i] = (byte) raster.getBits(indices[i], bitIndices[i]);
+			}
+		}
+	}
+}
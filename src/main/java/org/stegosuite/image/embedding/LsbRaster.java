@@ -0,0 +1,355 @@
+package org.stegosuite.image.embedding;
+
+import org.stegosuite.util.CopyOnWriteDataBuffer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DirectColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Reads and writes single bits of the red, green and blue channel of the pixels of a
+ * BufferedImage. Works directly on the elements of the data buffer of the raster for the common
+ * layouts ({@code TYPE_3BYTE_BGR}, {@code TYPE_4BYTE_ABGR}, {@code TYPE_INT_RGB},
+ * {@code TYPE_INT_ARGB} and 16 bit RGB(A)), also if the data buffer is shared with another image
+ * (see {@link CopyOnWriteDataBuffer}), and falls back to getRGB() and setRGB() for all others.
+ * <p>
+ * The result is the same as reading a pixel with getRGB(), changing the channels of its 8 bit
+ * color and writing it back with setRGB() as an opaque color.
+ * <p>
+ * Pixels are addressed by their linear index ({@code y * width + x}). Bits are passed and returned
+ * as an int holding one bit per channel, the red channel in the highest bit.
+ */
+public abstract class LsbRaster {
+
+	protected final int width;
+
+	protected LsbRaster(BufferedImage image) {
+		this.width = image.getWidth();
+	}
+
+	/**
+	 * Creates the fastest implementation for the layout of the passed image
+	 *
+	 * @param image
+	 * @return
+	 */
+	public static LsbRaster of(BufferedImage image) {
+		WritableRaster raster = image.getRaster();
+		ColorModel colorModel = image.getColorModel();
+
+		if (raster.getDataBuffer().getNumBanks() != 1) {
+			return new Generic(image);
+		}
+
+		if (colorModel instanceof DirectColorModel && colorModel.getColorSpace().isCS_sRGB()
+				&& !colorModel.isAlphaPremultiplied() && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+				&& raster.getTransferType() == DataBuffer.TYPE_INT) {
+			DirectColorModel directColorModel = (DirectColorModel) colorModel;
+			if (directColorModel.getRedMask() == 0xFF0000 && directColorModel.getGreenMask() == 0xFF00
+					&& directColorModel.getBlueMask() == 0xFF
+					&& (directColorModel.getAlphaMask() == 0 || directColorModel.getAlphaMask() == 0xFF000000)) {
+				return new PackedInt(image);
+			}
+		}
+
+		if (colorModel instanceof ComponentColorModel && colorModel.getColorSpace().isCS_sRGB()
+				&& !colorModel.isAlphaPremultiplied() && raster.getSampleModel() instanceof PixelInterleavedSampleModel
+				&& raster.getNumBands() == (colorModel.hasAlpha() ? 4 : 3)) {
+			int[] componentSizes = colorModel.getComponentSize();
+			if (raster.getTransferType() == DataBuffer.TYPE_BYTE && allEqual(componentSizes, 8)) {
+				return new InterleavedByte(image);
+			}
+			if (raster.getTransferType() == DataBuffer.TYPE_USHORT && allEqual(componentSizes, 16)) {
+				return new InterleavedUShort(image);
+			}
+		}
+
+		return new Generic(image);
+	}
+
+	private static boolean allEqual(int[] values, int value) {
+		for (int v : values) {
+			if (v != value) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if different pixels may be read and written by different threads at the same
+	 * time
+	 *
+	 * @return
+	 */
+	public boolean isParallelAccessSupported() {
+		return true;
+	}
+
+	/**
+	 * Returns the bit at bitIndex of the red, green and blue channel of the pixel
+	 *
+	 * @param index linear index of the pixel
+	 * @param bitIndex index of the bit in each channel, 0 is LSB
+	 * @return the 3 bits, red in bit 2, green in bit 1 and blue in bit 0
+	 */
+	public abstract int getBits(int index, int bitIndex);
+
+	/**
+	 * Sets the bit at bitIndex of the first count channels (red, green, blue) of the pixel. The
+	 * remaining channels keep their value. The pixel is made opaque.
+	 *
+	 * @param index linear index of the pixel
+	 * @param bitIndex index of the bit in each channel, 0 is LSB
+	 * @param bits the bits to set, the bit for the first channel in bit count - 1
+	 * @param count number of channels to set, 1 to 3
+	 * @return true if the color of the pixel was changed
+	 */
+	public abstract boolean setBits(int index, int bitIndex, int bits, int count);
+
+	/**
+	 * Interleaved 8 bit components, e.g. TYPE_3BYTE_BGR and TYPE_4BYTE_ABGR
+	 */
+	private static class InterleavedByte
+			extends LsbRaster {
+
+		private final DataBuffer data;
+		private final int offset;
+		private final int scanlineStride;
+		private final int pixelStride;
+
+		/**
+		 * Offsets of the red, green and blue component within a pixel
+		 */
+		private final int[] channelOffsets;
+
+		/**
+		 * Offset of the alpha component within a pixel, -1 if there is none
+		 */
+		private final int alphaOffset;
+
+		InterleavedByte(BufferedImage image) {
+			super(image);
+			WritableRaster raster = image.getRaster();
+			PixelInterleavedSampleModel sampleModel = (PixelInterleavedSampleModel) raster.getSampleModel();
+			data = raster.getDataBuffer();
+			scanlineStride = sampleModel.getScanlineStride();
+			pixelStride = sampleModel.getPixelStride();
+			offset = -raster.getSampleModelTranslateY() * scanlineStride
+					- raster.getSampleModelTranslateX() * pixelStride;
+			int[] bandOffsets = sampleModel.getBandOffsets();
+			channelOffsets = new int[] { bandOffsets[0], bandOffsets[1], bandOffsets[2] };
+			alphaOffset = bandOffsets.length > 3 ? bandOffsets[3] : -1;
+		}
+
+		@Override
+		public int getBits(int index, int bitIndex) {
+			int pixel = offset + (index / width) * scanlineStride + (index % width) * pixelStride;
+			return ((data.getElem(pixel + channelOffsets[0]) >>> bitIndex) & 1) << 2
+					| ((data.getElem(pixel + channelOffsets[1]) >>> bitIndex) & 1) << 1
+					| ((data.getElem(pixel + channelOffsets[2]) >>> bitIndex) & 1);
+		}
+
+		@Override
+		public boolean setBits(int index, int bitIndex, int bits, int count) {
+			int pixel = offset + (index / width) * scanlineStride + (index % width) * pixelStride;
+			boolean changed = false;
+			for (int channel = 0; channel < count; channel++) {
+				int position = pixel + channelOffsets[channel];
+				int oldValue = data.getElem(position);
+				int bit = (bits >>> (count - 1 - channel)) & 1;
+				int newValue = (oldValue & ~(1 << bitIndex)) | (bit << bitIndex);
+				data.setElem(position, newValue);
+				changed |= newValue != oldValue;
+			}
+			if (alphaOffset >= 0) {
+				data.setElem(pixel + alphaOffset, 0xFF);
+			}
+			return changed;
+		}
+	}
+
+	/**
+	 * Interleaved 16 bit components, e.g. 16 bit PNG images. Each channel is converted to 8 bit
+	 * and back through lookup tables built from the color model, like getRGB() and setRGB() do.
+	 */
+	private static class InterleavedUShort
+			extends LsbRaster {
+
+		private final DataBuffer data;
+		private final int offset;
+		private final int scanlineStride;
+		private final int pixelStride;
+		private final int[] channelOffsets;
+		private final int alphaOffset;
+
+		/**
+		 * 16 bit component to 8 bit sRGB value
+		 */
+		private final byte[] to8Bit = new byte[1 << 16];
+
+		/**
+		 * 8 bit sRGB value to 16 bit component
+		 */
+		private final short[] from8Bit = new short[1 << 8];
+
+		/**
+		 * 16 bit value of an opaque alpha component
+		 */
+		private final short opaque;
+
+		InterleavedUShort(BufferedImage image) {
+			super(image);
+			WritableRaster raster = image.getRaster();
+			PixelInterleavedSampleModel sampleModel = (PixelInterleavedSampleModel) raster.getSampleModel();
+			data = raster.getDataBuffer();
+			scanlineStride = sampleModel.getScanlineStride();
+			pixelStride = sampleModel.getPixelStride();
+			offset = -raster.getSampleModelTranslateY() * scanlineStride
+					- raster.getSampleModelTranslateX() * pixelStride;
+			int[] bandOffsets = sampleModel.getBandOffsets();
+			channelOffsets = new int[] { bandOffsets[0], bandOffsets[1], bandOffsets[2] };
+			alphaOffset = bandOffsets.length > 3 ? bandOffsets[3] : -1;
+
+			ColorModel colorModel = image.getColorModel();
+			short[] pixel = new short[bandOffsets.length];
+			for (int value = 0; value < to8Bit.length; value++) {
+				pixel[0] = (short) value;
+				to8Bit[value] = (byte) colorModel.getRed(pixel);
+			}
+			short[] elements = null;
+			for (int value = 0; value < from8Bit.length; value++) {
+				elements = (short[]) colorModel.getDataElements(0xFF000000 | value << 16, elements);
+				from8Bit[value] = elements[0];
+			}
+			opaque = alphaOffset >= 0 ? elements[3] : 0;
+		}
+
+		@Override
+		public int getBits(int index, int bitIndex) {
+			int pixel = offset + (index / width) * scanlineStride + (index % width) * pixelStride;
+			return ((to8Bit[data.getElem(pixel + channelOffsets[0])] >>> bitIndex) & 1) << 2
+					| ((to8Bit[data.getElem(pixel + channelOffsets[1])] >>> bitIndex) & 1) << 1
+					| ((to8Bit[data.getElem(pixel + channelOffsets[2])] >>> bitIndex) & 1);
+		}
+
+		@Override
+		public boolean setBits(int index, int bitIndex, int bits, int count) {
+			int pixel = offset + (index / width) * scanlineStride + (index % width) * pixelStride;
+			boolean changed = false;
+			// All channels are written back, just like setRGB() would do
+			for (int channel = 0; channel < 3; channel++) {
+				int position = pixel + channelOffsets[channel];
+				int oldValue = to8Bit[data.getElem(position)] & 0xFF;
+				int newValue = oldValue;
+				if (channel < count) {
+					int bit = (bits >>> (count - 1 - channel)) & 1;
+					newValue = (oldValue & ~(1 << bitIndex)) | (bit << bitIndex);
+				}
+				data.setElem(position, from8Bit[newValue] & 0xFFFF);
+				changed |= newValue != oldValue;
+			}
+			if (alphaOffset >= 0) {
+				data.setElem(pixel + alphaOffset, opaque & 0xFFFF);
+			}
+			return changed;
+		}
+	}
+
+	/**
+	 * One int per pixel, e.g. TYPE_INT_RGB and TYPE_INT_ARGB
+	 */
+	private static class PackedInt
+			extends LsbRaster {
+
+		private final DataBuffer data;
+		private final int offset;
+		private final int scanlineStride;
+
+		/**
+		 * Value of the unused (TYPE_INT_RGB) or alpha (TYPE_INT_ARGB) byte of a written pixel
+		 */
+		private final int opaque;
+
+		PackedInt(BufferedImage image) {
+			super(image);
+			WritableRaster raster = image.getRaster();
+			SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+			data = raster.getDataBuffer();
+			scanlineStride = sampleModel.getScanlineStride();
+			offset = -raster.getSampleModelTranslateY() * scanlineStride
+					- raster.getSampleModelTranslateX();
+			opaque = image.getColorModel().hasAlpha() ? 0xFF000000 : 0;
+		}
+
+		@Override
+		public int getBits(int index, int bitIndex) {
+			int rgb = data.getElem(offset + (index / width) * scanlineStride + index % width);
+			return ((rgb >>> (16 + bitIndex)) & 1) << 2 | ((rgb >>> (8 + bitIndex)) & 1) << 1
+					| ((rgb >>> bitIndex) & 1);
+		}
+
+		@Override
+		public boolean setBits(int index, int bitIndex, int bits, int count) {
+			int position = offset + (index / width) * scanlineStride + index % width;
+			int oldRgb = data.getElem(position) & 0xFFFFFF;
+			int newRgb = oldRgb;
+			for (int channel = 0; channel < count; channel++) {
+				int shift = 16 - 8 * channel + bitIndex;
+				int bit = (bits >>> (count - 1 - channel)) & 1;
+				newRgb = (newRgb & ~(1 << shift)) | (bit << shift);
+			}
+			data.setElem(position, opaque | newRgb);
+			return newRgb != oldRgb;
+		}
+	}
+
+	/**
+	 * Any other layout, e.g. grayscale or indexed images, through getRGB() and setRGB()
+	 */
+	private static class Generic
+			extends LsbRaster {
+
+		private final BufferedImage image;
+
+		Generic(BufferedImage image) {
+			super(image);
+			this.image = image;
+		}
+
+		/**
+		 * Color models may cache conversions internally, e.g. IndexColorModel
+		 */
+		@Override
+		public boolean isParallelAccessSupported() {
+			return false;
+		}
+
+		@Override
+		public int getBits(int index, int bitIndex) {
+			int rgb = image.getRGB(index % width, index / width);
+			return ((rgb >>> (16 + bitIndex)) & 1) << 2 | ((rgb >>> (8 + bitIndex)) & 1) << 1
+					| ((rgb >>> bitIndex) & 1);
+		}
+
+		@Override
+		public boolean setBits(int index, int bitIndex, int bits, int count) {
+			int x = index % width;
+			int y = index / width;
+			int oldRgb = image.getRGB(x, y) | 0xFF000000;
+			int newRgb = oldRgb;
+			for (int channel = 0; channel < count; channel++) {
+				int shift = 16 - 8 * channel + bitIndex;
+				int bit = (bits >>> (count - 1 - channel)) & 1;
+				newRgb = (newRgb & ~(1 << shift)) | (bit << shift);
+			}
+			image.setRGB(x, y, newRgb);
+			return newRgb != oldRgb;
+		}
+	}
+}
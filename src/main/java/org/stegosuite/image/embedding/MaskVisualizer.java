@@ -0,0 +1,74 @@
+package org.stegosuite.image.embedding;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.stegosuite.image.format.ImageFormat;
+import org.stegosuite.util.ColorUtils;
+import org.stegosuite.util.ImageSwtAwtConverter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Stores the visualization mode of each pixel in a packed mask of 2 bits per pixel. The
+ * visualization image is only rendered when it's requested, by painting the marked pixels over a
+ * copy of the image. The image must not be modified while this visualizer is in use.
+ */
+public class MaskVisualizer
+		extends Visualizer {
+
+	private static final int BITS_PER_PIXEL = 2;
+
+	private static final int PIXELS_PER_WORD = Long.SIZE / BITS_PER_PIXEL;
+
+	private static final long PIXEL_MASK = (1L << BITS_PER_PIXEL) - 1;
+
+	private final BufferedImage image;
+
+	/**
+	 * RGB value of each mode, indexed by the ordinal of the mode + 1. 0 marks unvisualized pixels.
+	 */
+	private final int[] colors = new int[VisualizationMode.values().length + 1];
+
+	/**
+	 * Bits {@code 2 * (i % 32)} and {@code 2 * (i % 32) + 1} of word {@code i / 32} hold the mode of
+	 * the pixel with linear index {@code i}
+	 */
+	private final long[] mask;
+
+	/**
+	 * Constructor
+	 *
+	 * @param image The image to visualize
+	 * @param visualizations The colors to paint the pixels of each mode with
+	 */
+	public MaskVisualizer(ImageFormat image, Visualize... visualizations) {
+		super(image.getWidth());
+		this.image = image.getBufferedImage();
+		this.mask = new long[(image.getWidth() * image.getHeight() + PIXELS_PER_WORD - 1) / PIXELS_PER_WORD];
+		for (Visualize visualize : visualizations) {
+			colors[visualize.getMode().ordinal() + 1] = visualize.getColor().getRGB();
+		}
+	}
+
+	@Override
+	public void visualize(int index, VisualizationMode mode) {
+		int shift = (index % PIXELS_PER_WORD) * BITS_PER_PIXEL;
+		long code = mode.ordinal() + 1;
+		mask[index / PIXELS_PER_WORD] = (mask[index / PIXELS_PER_WORD] & ~(PIXEL_MASK << shift)) | (code << shift);
+	}
+
+	@Override
+	public ImageData getImageData() {
+		BufferedImage visualization = ColorUtils.copyOnWriteBufferedImage(image);
+		for (int word = 0; word < mask.length; word++) {
+			long bits = mask[word];
+			while (bits != 0) {
+				// Jump to the next marked pixel
+				int shift = Long.numberOfTrailingZeros(bits) & -BITS_PER_PIXEL;
+				int index = word * PIXELS_PER_WORD + shift / BITS_PER_PIXEL;
+				visualization.setRGB(index % width, index / width, colors[(int) ((bits >>> shift) & PIXEL_MASK)]);
+				bits &= ~(PIXEL_MASK << shift);
+			}
+		}
+		return ImageSwtAwtConverter.convertToSWT(visualization);
+	}
+}
@@ -1,18 +1,14 @@
 package org.stegosuite.image.embedding;
 
 import org.eclipse.swt.graphics.ImageData;
-import org.stegosuite.image.format.ImageFormat;
-import org.stegosuite.util.ColorUtils;
-import org.stegosuite.util.ImageSwtAwtConverter;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.util.Arrays;
-import java.util.Map;
 
-import static java.util.stream.Collectors.toMap;
-
-public class Visualizer {
+/**
+ * Keeps track of the pixels processed while embedding or extracting, so they can be shown to the
+ * user. Pixels are addressed by their linear index ({@code y * width + x}).
+ */
+public abstract class Visualizer {
 
 	/**
 	 * The different modes of visualization
@@ -45,33 +41,77 @@ public class Visualizer {
 
 	}
 
-	private Map<VisualizationMode, Color> visualizations = null;
+	/**
+	 * A visualizer that ignores all pixels, used when nothing is going to be shown
+	 */
+	public static final Visualizer NONE = new Visualizer(0) {
 
-	private BufferedImage visualizationBufferedImage = null;
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+
+		@Override
+		public void visualize(int index, VisualizationMode mode) {}
+
+		@Override
+		public ImageData getImageData() {
+			return null;
+		}
+	};
 
-	public Visualizer(ImageFormat image, Visualize... visualizations) {
-		visualizationBufferedImage = ColorUtils.cloneBufferedImage(image.getBufferedImage());
-		this.visualizations = Arrays.stream(visualizations).collect(toMap(Visualize::getMode, Visualize::getColor));
+	/**
+	 * Width of the visualized image
+	 */
+	protected final int width;
+
+	protected Visualizer(int width) {
+		this.width = width;
 	}
 
 	/**
-	 * Changes the color of the visualization image at the specified point according to the
-	 * visualization mode
-	 * 
+	 * Returns false if calls to visualize() are ignored, so callers can skip collecting the pixels
+	 *
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return true;
+	}
+
+	/**
+	 * Marks the pixel at the specified point according to the visualization mode
+	 *
 	 * @param point
 	 * @param mode
 	 */
 	public void visualize(Point point, VisualizationMode mode) {
-		visualizationBufferedImage.setRGB(point.x, point.y, visualizations.get(mode).getRGB());
+		visualize(point.x, point.y, mode);
 	}
 
 	/**
-	 * Returns a copy of the visualization image in ImageData format
-	 * 
-	 * @return
+	 * Marks the pixel at the specified coordinates according to the visualization mode
+	 *
+	 * @param x
+	 * @param y
+	 * @param mode
 	 */
-	public ImageData getImageData() {
-		return ImageSwtAwtConverter.convertToSWT(visualizationBufferedImage);
+	public void visualize(int x, int y, VisualizationMode mode) {
+		visualize(y * width + x, mode);
 	}
 
+	/**
+	 * Marks the pixel with the specified linear index according to the visualization mode
+	 *
+	 * @param index
+	 * @param mode
+	 */
+	public abstract void visualize(int index, VisualizationMode mode);
+
+	/**
+	 * Renders the visualization image in ImageData format
+	 *
+	 * @return
+	 */
+	public abstract ImageData getImageData();
+
 }
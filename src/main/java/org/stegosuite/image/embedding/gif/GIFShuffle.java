@@ -12,6 +12,7 @@ import org.stegosuite.model.payload.PayloadEmbedder;
 import org.stegosuite.model.payload.PayloadExtractor;
 import org.stegosuite.util.ByteUtils;
 import org.stegosuite.util.ColorDistance;
+import org.stegosuite.util.ColorUtils;
 import org.stegosuite.util.CryptoUtils;
 
 import java.awt.*;
@@ -57,20 +58,19 @@ public class GIFShuffle
 		PayloadEmbedder embedder = new PayloadEmbedder(payload, this.capacity());
 		BigInteger numPayload = new BigInteger(ByteUtils.concat(new byte[] { 1 }, embedder.getPayloadBytes()));
 
-		for (int i = 0; i < originalTable.size(); i++) {
-			int pos = numPayload.mod(BigInteger.valueOf(i + 1)).intValue();
-			numPayload = numPayload.divide(BigInteger.valueOf(i + 1));
-			for (int j = i; j > pos; j--) {
-				newTable.set(j, newTable.get(j - 1));
-			}
-			newTable.set(pos, randomTable.get(originalTable.size() - i - 1));
-			progress.progressUpdate(i + 1, originalTable.size());
+		// The colors of the random table are inserted from last to first, each one at the position
+		// given by the next digit of the payload in the factorial number system
+		int numColors = originalTable.size();
+		int[] positions = PermutationCodec.toPositions(PermutationCodec.toDigits(numPayload, numColors));
+		for (int i = 0; i < numColors; i++) {
+			newTable.set(positions[i], randomTable.get(numColors - i - 1));
 		}
+		progress.progressUpdate(numColors, numColors);
 
 		// Update the color table and pixels according to the new color table
-		int[] newPixels = Arrays.stream(image.getPixels()) //
-				.map(pixel -> newTable.indexOf(originalTable.get(pixel))).toArray();
-		image.setPixels(newPixels);
+		byte[] pixels = image.getIndices();
+		ColorUtils.remapIndices(pixels, originalTable, newTable);
+		image.setIndices(pixels);
 		image.setColorTable(newTable);
 	}
 
@@ -81,34 +81,22 @@ public class GIFShuffle
 		List<Color> randomTable = image.getSortedColorTable(DISTANCE);
 		Collections.shuffle(randomTable, CryptoUtils.seededRandom(payload.getSteganoPassword()));
 
-		Map<Color, Integer> positions = IntStream.range(0, table.size()).boxed()
+		Map<Color, Integer> indices = IntStream.range(0, table.size()).boxed()
 				.collect(Collectors.toMap(i -> table.get(i), i -> i));
 
-		BigInteger numPayload = BigInteger.ZERO;
-
-		for (int i = 0; i < table.size() - 1; i++) {
-			int pos = positions.get(randomTable.get(i));
-
-			numPayload = numPayload.multiply(BigInteger.valueOf(table.size() - i));
-			numPayload = numPayload.add(BigInteger.valueOf(pos));
-
-			for (int j = i + 1; j < table.size(); j++) {
-				Color color = randomTable.get(j);
-				if (positions.get(color) > pos) {
-					positions.put(color, positions.get(color) - 1);
-				}
-			}
-
-			progress.progressUpdate(i + 2, table.size());
+		// Reverse the embedding: the colors of the random table were inserted from last to first
+		int numColors = table.size();
+		int[] positions = new int[numColors];
+		for (int i = 0; i < numColors; i++) {
+			positions[i] = indices.get(randomTable.get(numColors - i - 1));
 		}
+		BigInteger numPayload = PermutationCodec.fromDigits(PermutationCodec.fromPositions(positions));
+		progress.progressUpdate(numColors, numColors);
 
 		// We skip the 1st byte because it's the 1 we prepended during embedding
-		int i = 1;
 		byte[] payloadBytes = numPayload.toByteArray();
 		PayloadExtractor extractor = new PayloadExtractor(payload);
-		while (!extractor.finished() && i < payloadBytes.length) {
-			extractor.processByte(payloadBytes[i++]);
-		}
+		extractor.processBytes(payloadBytes, 1, payloadBytes.length - 1);
 
 		// If the extractor still expects data at this point, we extracted
 		// the wrong payload size due to wrong stego password
@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.stegosuite.image.embedding.EmbeddingMethod;
 import org.stegosuite.image.embedding.EmbeddingProgress;
+import org.stegosuite.image.embedding.MaskVisualizer;
 import org.stegosuite.image.embedding.Visualizer;
 import org.stegosuite.image.embedding.Visualizer.VisualizationMode;
 import org.stegosuite.image.embedding.Visualizer.Visualize;
@@ -20,6 +21,7 @@ import org.stegosuite.model.payload.PayloadEmbedder;
 import org.stegosuite.model.payload.PayloadExtractor;
 import org.stegosuite.model.payload.block.FileBlock;
 import org.stegosuite.model.payload.block.MessageBlock;
+import org.stegosuite.util.BitReader;
 import org.stegosuite.util.ColorDistance;
 import org.stegosuite.util.ColorUtils;
 
@@ -60,7 +62,7 @@ public class GIFSortedColorTable
 
 	@Override
 	protected Visualizer createVisualizer(GIFImage image) {
-		return new Visualizer(image, new Visualize(VisualizationMode.ALTERED, Color.RED),
+		return new MaskVisualizer(image, new Visualize(VisualizationMode.ALTERED, Color.RED),
 				new Visualize(VisualizationMode.UNALTERED, Color.GREEN));
 	}
 
@@ -71,9 +73,8 @@ public class GIFSortedColorTable
 	 */
 	@Override
 	protected int doCapacity(GIFImage image) {
-		Map<Color, Integer> histogram = image.getHistogram();
-		int skipPixelCount = getSkipColors(image).stream().mapToInt(c -> histogram.get(c)).sum();
-		int filteredPixelCount = pointFilter.getFilteredPoints(image).size();
+		int skipPixelCount = image.getPixelCount(getSkipTable(image, image.getColorTable()));
+		int filteredPixelCount = pointFilter.getFilteredPoints(image).count();
 		return (image.getHeight() * image.getWidth() - filteredPixelCount - skipPixelCount) / 8;
 	}
 
@@ -86,120 +87,96 @@ public class GIFSortedColorTable
 		PayloadEmbedder embedder = new PayloadEmbedder(payload, this.capacity());
 		int payloadNumBytes = embedder.getPayloadBytes().length;
 
-		int[] pixels = image.getPixels().clone();
+		// The pixels are modified in place, the histogram keeps the color frequencies before
+		// embedding
+		byte[] pixels = image.getIndices();
 		List<Color> table = image.getColorTable();
 		List<Color> sortedTable = image.getSortedColorTable(DISTANCE);
-		Set<Color> unreferencedColorsBefore = ColorUtils.getUnreferencedColors(table, pixels);
+		Map<Color, Integer> histogram = image.getHistogram();
+		Set<Color> unreferencedColorsBefore = ColorUtils.getUnreferencedColors(histogram);
+
+		int[] paletteToSorted = getPaletteToSorted(table, sortedTable);
+		int[] sortedToPalette = getSortedToPalette(table, sortedTable);
+		boolean[] skip = getSkipTable(image, table);
 
-		int currentBit = 0;
-		for (byte bit : embedder.iteratePayloadBits()) {
-			Point point = null;
+		BitReader bits = embedder.getPayloadBits();
+		while (bits.hasNext()) {
+			int bit = bits.readBit();
 			int pixelIndex = 0;
-			Color currentColor = null;
 
 			do {
-				point = pointGenerator.nextPoint();
-				pixelIndex = (point.y * image.getWidth()) + point.x;
-				currentColor = table.get(pixels[pixelIndex]);
-			} while (getSkipColors(image).contains(currentColor));
+				pixelIndex = pointGenerator.nextIndex();
+			} while (skip[pixels[pixelIndex] & 0xFF]);
 
-			int sortedColorIndex = sortedTable.indexOf(currentColor);
+			int sortedColorIndex = paletteToSorted[pixels[pixelIndex] & 0xFF];
 			boolean pixelMatchesPayloadBit = sortedColorIndex % 2 == bit;
 
 			// Write steganogram
 			if (!pixelMatchesPayloadBit) {
 				// Toggle LSB
 				int newSortedColorIndex = Math.min(sortedColorIndex ^ 0b1, sortedTable.size() - 1);
-				pixels[pixelIndex] = table.indexOf(sortedTable.get(newSortedColorIndex));
+				pixels[pixelIndex] = (byte) sortedToPalette[newSortedColorIndex];
 			}
 
 			// Write visualization
-			visualizer.visualize(point,
-					pixelMatchesPayloadBit ? VisualizationMode.UNALTERED : VisualizationMode.ALTERED);
+			visualizer.visualize(pixelIndex, pixelMatchesPayloadBit ? VisualizationMode.UNALTERED : VisualizationMode.ALTERED);
 
 			// Update progress
 			if (progress != null) {
-				progress.progressUpdate(currentBit++ / 8, payloadNumBytes);
+				progress.progressUpdate(bits.position() / 8, payloadNumBytes);
 			}
 		}
 
+		image.setIndices(pixels);
+
 		// Check for colors that were referenced before embedding but are now
 		// unreferenced
-		Set<Color> referencedColorsAfter = ColorUtils.getUnreferencedColors(table, pixels);
+		Set<Color> referencedColorsAfter = ColorUtils.getUnreferencedColors(image.getHistogram());
 		referencedColorsAfter.removeAll(unreferencedColorsBefore);
 		if (!referencedColorsAfter.isEmpty()) {
 			LOG.info("Reinserting {} unreferenced colors", referencedColorsAfter.size());
-			Map<Color, Integer> histogram = ColorUtils.getHistogram(table, pixels);
-			for (Color unreferencedColor : referencedColorsAfter) {
-				// Sort table by similarity to unreferenced color
-				List<Color> similarColors = new ArrayList<>(table);
-				similarColors.remove(unreferencedColor);
-				similarColors.sort((c1, c2) -> (int) Math
-						.round(DISTANCE.distance(unreferencedColor, c1) - DISTANCE.distance(unreferencedColor, c2)));
-				// Try to replace most similar color with unreferenced color
-				boolean isFixed = false;
-				for (int i = 0; i < similarColors.size() && !isFixed; i++) {
-					Color similarColor = similarColors.get(i);
-					// Only replace it if it's referenced at least twice, we
-					// don't want another unreferenced color
-					if (histogram.get(similarColor) > 1) {
-						int similarColorIndex = table.indexOf(similarColor);
-						// Find first pixel of that color
-						for (int j = 0; j < pixels.length && !isFixed; j++) {
-							if (pixels[j] == similarColorIndex) {
-								// Only modify the pixel if it doesn't carry our
-								// payload
-								Point point = new Point(j % image.getWidth(), j / image.getWidth());
-								if (!pointGenerator.wasGenerated(point)) {
-									pixels[j] = table.indexOf(unreferencedColor);
-									isFixed = true;
-								}
-							}
-						}
-					}
-				}
-			}
+			reinsertColors(image, table, pixels, referencedColorsAfter, pointGenerator);
 		}
 
-		// Sort color table by new color frequencies
-		List<Color> colorsSortedByFrequency = image.getHistogram().entrySet().stream()
+		// Sort color table by color frequencies
+		List<Color> colorsSortedByFrequency = histogram.entrySet().stream()
 				.sorted(Collections.reverseOrder(Entry.comparingByValue())).map(Entry::getKey).collect(toList());
 
 		// Adjust pixels to new sorting of the palette
-		pixels = Arrays.stream(pixels).map(i -> colorsSortedByFrequency.indexOf(table.get(i))).toArray();
+		ColorUtils.remapIndices(pixels, table, colorsSortedByFrequency);
 
 		image.setColorTable(colorsSortedByFrequency);
-		image.setPixels(pixels);
+		image.setIndices(pixels);
 	}
 
 	@Override
 	protected void doExtract(GIFImage image, Payload payload, EmbeddingProgress progress)
 			throws SteganoExtractException {
 
-		int[] pixels = image.getPixels();
+		byte[] pixels = image.getIndices();
 		List<Color> table = image.getColorTable();
 		List<Color> sortedTable = image.getSortedColorTable(DISTANCE);
 
+		int[] paletteToSorted = getPaletteToSorted(table, sortedTable);
+		boolean[] skip = getSkipTable(image, table);
+
 		PayloadExtractor extractor = new PayloadExtractor(payload);
 		PointGenerator<GIFImage> pointGenerator = new PointGenerator<>(image, payload.getSteganoPassword(),
 				pointFilter);
 
 		try {
 			while (!extractor.finished()) {
-				Point point = pointGenerator.nextPoint();
-				int pixelIndex = (point.y * image.getWidth()) + point.x;
-				Color color = table.get(pixels[pixelIndex]);
+				int pixelIndex = pointGenerator.nextIndex();
 
-				if (getSkipColors(image).contains(color)) {
+				if (skip[pixels[pixelIndex] & 0xFF]) {
 					continue;
 				}
 
-				int sortedColorIndex = sortedTable.indexOf(color);
-				byte bit = (byte) (sortedColorIndex % 2);
-				extractor.processBit(bit);
+				int sortedColorIndex = paletteToSorted[pixels[pixelIndex] & 0xFF];
+				extractor.processBits(sortedColorIndex % 2, 1);
 
 				// Write visualization
-				visualizer.visualize(point, VisualizationMode.ALTERED);
+				visualizer.visualize(pixelIndex, VisualizationMode.ALTERED);
 
 				// Update progress
 				if (progress != null && extractor.getPayloadLength() != null) {
@@ -235,6 +212,117 @@ public class GIFSortedColorTable
 		return skipColors.getValue();
 	}
 
+	/**
+	 * Makes each of the passed colors referenced again by assigning it to a pixel of the most
+	 * similar color that is referenced at least twice. Pixels that carry payload bits are never
+	 * modified.
+	 *
+	 * @param image
+	 * @param table
+	 * @param pixels The color index of each pixel, modified in place
+	 * @param unreferencedColors
+	 * @param pointGenerator The point generator that selected the pixels to embed into
+	 */
+	private void reinsertColors(GIFImage image, List<Color> table, byte[] pixels, Set<Color> unreferencedColors,
+			PointGenerator<GIFImage> pointGenerator) {
+		Map<Color, Integer> histogram = image.getHistogram();
+		double[] distances = image.getDistanceMatrix(DISTANCE);
+		int tableSize = table.size();
+
+		// The pixels of each color index in ascending order, linked through nextOccurrence. The
+		// first entry of a list is advanced past pixels that can't be modified, so the search for
+		// a pixel resumes where the last one ended.
+		int[] firstOccurrence = new int[tableSize];
+		int[] nextOccurrence = new int[pixels.length];
+		Arrays.fill(firstOccurrence, -1);
+		for (int i = pixels.length - 1; i >= 0; i--) {
+			nextOccurrence[i] = firstOccurrence[pixels[i] & 0xFF];
+			firstOccurrence[pixels[i] & 0xFF] = i;
+		}
+
+		for (Color unreferencedColor : unreferencedColors) {
+			int unreferencedIndex = table.indexOf(unreferencedColor);
+
+			// Sort table by similarity to unreferenced color
+			int rowOffset = unreferencedIndex * tableSize;
+			List<Integer> similarColors = new ArrayList<>(tableSize);
+			for (int i = 0; i < tableSize; i++) {
+				if (i != unreferencedIndex) {
+					similarColors.add(i);
+				}
+			}
+			similarColors.sort(
+					(i1, i2) -> (int) Math.round(distances[rowOffset + i1] - distances[rowOffset + i2]));
+
+			// Try to replace most similar color with unreferenced color
+			for (int similarIndex : similarColors) {
+				Color similarColor = table.get(similarIndex);
+				// Only replace it if it's referenced at least twice, we don't want another
+				// unreferenced color
+				if (histogram.get(similarColor) > 1) {
+					int similarColorIndex = table.indexOf(similarColor);
+					// Find first pixel of that color that doesn't carry our payload
+					int pixel = firstOccurrence[similarColorIndex];
+					while (pixel != -1 && pointGenerator.wasGenerated(pixel)) {
+						pixel = nextOccurrence[pixel];
+					}
+					firstOccurrence[similarColorIndex] = pixel == -1 ? -1 : nextOccurrence[pixel];
+					if (pixel != -1) {
+						pixels[pixel] = (byte) unreferencedIndex;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the index in the sorted table of each color in the color table
+	 *
+	 * @param table
+	 * @param sortedTable
+	 * @return
+	 */
+	private static int[] getPaletteToSorted(List<Color> table, List<Color> sortedTable) {
+		int[] paletteToSorted = new int[table.size()];
+		for (int i = 0; i < paletteToSorted.length; i++) {
+			paletteToSorted[i] = sortedTable.indexOf(table.get(i));
+		}
+		return paletteToSorted;
+	}
+
+	/**
+	 * Returns the index in the color table of each color in the sorted table. If a color appears
+	 * more than once in the color table, its first index is used.
+	 *
+	 * @param table
+	 * @param sortedTable
+	 * @return
+	 */
+	private static int[] getSortedToPalette(List<Color> table, List<Color> sortedTable) {
+		int[] sortedToPalette = new int[sortedTable.size()];
+		for (int i = 0; i < sortedToPalette.length; i++) {
+			sortedToPalette[i] = table.indexOf(sortedTable.get(i));
+		}
+		return sortedToPalette;
+	}
+
+	/**
+	 * Returns for each index of the color table whether pixels of that color are skipped
+	 *
+	 * @param image
+	 * @param table
+	 * @return
+	 */
+	private boolean[] getSkipTable(GIFImage image, List<Color> table) {
+		Collection<Color> skipColors = getSkipColors(image);
+		boolean[] skip = new boolean[table.size()];
+		for (int i = 0; i < skip.length; i++) {
+			skip[i] = skipColors.contains(table.get(i));
+		}
+		return skip;
+	}
+
 
 	// TODO: Move this into tests
 	public static void main(String[] args)
@@ -0,0 +1,145 @@
+package org.stegosuite.image.embedding.gif;
+
+import java.math.BigInteger;
+
+/**
+ * Converts between numbers and permutations in the factorial number system, as used by
+ * {@link GIFShuffle}. A permutation of n elements is built by inserting the elements one at a
+ * time: in step m, the element is inserted at position {@code digits[m]} (between 0 and m) of the
+ * list built so far, and the number is {@code sum(digits[m] * m!)}.
+ * <p>
+ * The conversions between numbers and digits split the digits in halves recursively, so the large
+ * numbers are only divided and multiplied O(log n) times. The conversions between digits and
+ * positions use a binary indexed tree, so each step takes O(log n).
+ */
+final class PermutationCodec {
+
+	/**
+	 * Private constructor to hide the publicly implicit one
+	 */
+	private PermutationCodec() {}
+
+	/**
+	 * Returns the n lowest digits of the number in the factorial number system. Digit m is between
+	 * 0 and m, higher digits are discarded.
+	 *
+	 * @param number
+	 * @param n
+	 * @return
+	 */
+	static int[] toDigits(BigInteger number, int n) {
+		int[] digits = new int[n];
+		if (n > 0) {
+			toDigits(number, 0, n, digits);
+		}
+		return digits;
+	}
+
+	/**
+	 * Returns the number represented by the digits in the factorial number system
+	 *
+	 * @param digits
+	 * @return
+	 */
+	static BigInteger fromDigits(int[] digits) {
+		return digits.length == 0 ? BigInteger.ZERO : fromDigits(digits, 0, digits.length);
+	}
+
+	/**
+	 * Returns the final position of each inserted element, given the insertion positions
+	 *
+	 * @param digits The position each element was inserted at, in order of insertion
+	 * @return
+	 */
+	static int[] toPositions(int[] digits) {
+		int n = digits.length;
+		int[] tree = new int[n + 1];
+		for (int i = 1; i <= n; i++) {
+			tree[i] = i & -i;
+		}
+
+		// Elements inserted later take their final positions first. Each element then takes the
+		// free position that has as many free positions before it as its insertion position.
+		int[] positions = new int[n];
+		for (int m = n - 1; m >= 0; m--) {
+			int position = findFree(tree, digits[m]);
+			positions[m] = position;
+			for (int i = position + 1; i <= n; i += i & -i) {
+				tree[i]--;
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * Returns the insertion position of each element, given the final positions
+	 *
+	 * @param positions The final position of each element, in order of insertion
+	 * @return
+	 */
+	static int[] fromPositions(int[] positions) {
+		int n = positions.length;
+		int[] tree = new int[n + 1];
+
+		// The insertion position is the number of earlier elements that end up before it
+		int[] digits = new int[n];
+		for (int m = 0; m < n; m++) {
+			int count = 0;
+			for (int i = positions[m]; i > 0; i -= i & -i) {
+				count += tree[i];
+			}
+			digits[m] = count;
+			for (int i = positions[m] + 1; i <= n; i += i & -i) {
+				tree[i]++;
+			}
+		}
+		return digits;
+	}
+
+	/**
+	 * Returns the 0-based position of the free slot that has k free slots before it
+	 */
+	private static int findFree(int[] tree, int k) {
+		int position = 0;
+		int remaining = k + 1;
+		for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+			if (position + step < tree.length && tree[position + step] < remaining) {
+				position += step;
+				remaining -= tree[position];
+			}
+		}
+		return position;
+	}
+
+	private static void toDigits(BigInteger number, int from, int to, int[] digits) {
+		if (to - from == 1) {
+			digits[from] = number.mod(BigInteger.valueOf(from + 1)).intValue();
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		BigInteger[] quotientAndRemainder = number.divideAndRemainder(radixProduct(from, middle));
+		toDigits(quotientAndRemainder[1], from, middle, digits);
+		toDigits(quotientAndRemainder[0], middle, to, digits);
+	}
+
+	private static BigInteger fromDigits(int[] digits, int from, int to) {
+		if (to - from == 1) {
+			return BigInteger.valueOf(digits[from]);
+		}
+		int middle = (from + to) >>> 1;
+		return fromDigits(digits, from, middle)
+				.add(radixProduct(from, middle).multiply(fromDigits(digits, middle, to)));
+	}
+
+	/**
+	 * Returns the product of the radices of the digits from (inclusive) to (exclusive), i.e.
+	 * {@code to! / from!}
+	 */
+	private static BigInteger radixProduct(int from, int to) {
+		if (to - from == 1) {
+			return BigInteger.valueOf(to);
+		}
+		int middle = (from + to) >>> 1;
+		return radixProduct(from, middle).multiply(radixProduct(middle, to));
+	}
+}
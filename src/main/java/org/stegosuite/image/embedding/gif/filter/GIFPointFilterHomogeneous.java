@@ -2,6 +2,7 @@ package org.stegosuite.image.embedding.gif.filter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.stegosuite.image.embedding.point.FilteredPoints;
 import org.stegosuite.image.embedding.point.PointFilter;
 import org.stegosuite.image.format.GIFImage;
 import org.stegosuite.model.exception.SteganoImageException;
@@ -11,12 +12,8 @@ import java.awt.*;
 import java.io.File;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.IntStream;
 
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.toMap;
-
 /**
  * Removes all points that are part of homogeneous areas of a GIF image
  */
@@ -27,51 +24,41 @@ public class GIFPointFilterHomogeneous
 
 	private static final ColorDistance DISTANCE = ColorDistance.CIEDE_2000;
 
-	private Collection<Point> filteredPoints = null;
-	private int[] indices = null;
-	private Map<Integer, Integer> indexToSortedIndex = null;
-
 	@Override
 	public int maxLsbCount() {
 		return 1;
 	}
 
+	/**
+	 * Returns a bitmap of all homogeneous areas. The image is split into horizontal stripes which
+	 * are filtered in parallel, each one reading 3 rows at a time.
+	 */
 	@Override
-	protected Collection<Point> filter(GIFImage image) {
-		filteredPoints = Collections.newSetFromMap(new ConcurrentHashMap<>());
-		indices = image.getPixels();
+	protected FilteredPoints filter(GIFImage image) {
+		byte[] indices = image.getIndices();
 
 		// Compute a mapping from original color indices to the indices in the sorted table,
-		// such that for all colors: table(i) == sortedTable(indexToSortedIndex(i))
+		// such that for all colors: table(i) == sortedTable(indexToSortedIndex[i])
 		List<Color> colorTable = image.getColorTable();
 		List<Color> sortedTable = image.getSortedColorTable(DISTANCE);
-		indexToSortedIndex = IntStream.range(0, colorTable.size()).boxed()
-				.collect(toMap(identity(), i -> sortedTable.indexOf(colorTable.get(i))));
+		int[] indexToSortedIndex = new int[256];
+		for (int i = 0; i < colorTable.size(); i++) {
+			indexToSortedIndex[i] = sortedTable.indexOf(colorTable.get(i));
+		}
 
 		long startTime = System.nanoTime();
 
 		int width = image.getWidth();
 		int height = image.getHeight();
+		FilteredPoints filteredPoints = new FilteredPoints(width, height);
 
-		// Partition the image into as many slices as CPU cores we have available
-		int numSlices = Runtime.getRuntime().availableProcessors();
-		int rowsForEachSlice = height / numSlices;
-
-		IntStream.range(0, numSlices).boxed().parallel().forEach(numSlice -> {
-			long startTimeSlice = System.nanoTime();
-
-			// Calculate start & end row of current slice
-			int sliceStartRow = numSlice * rowsForEachSlice;
-			int sliceEndRow = numSlice + 1 < numSlices ? sliceStartRow + rowsForEachSlice : height - 2;
-
-			int[][] normalizedRows = getNormalizedRows(width, sliceStartRow, sliceEndRow + 2);
-			Collection<Point> homogeneousPoints = collectHomogeneousPointsOfRows(normalizedRows, sliceStartRow,
-					sliceEndRow, width);
-			filteredPoints.addAll(homogeneousPoints);
+		// Stripes start at multiples of 64 rows, so each stripe writes its own words of the bitmap
+		int numStripes = Runtime.getRuntime().availableProcessors() * 4;
+		int rowsForEachStripe = Math.max(1, (height + 64 * numStripes - 1) / (64 * numStripes)) * 64;
 
-			LOG.debug("Filtered slice {} of {} rows in {} ms", numSlice, sliceEndRow - sliceStartRow,
-					(System.nanoTime() - startTimeSlice) / 1000000);
-		});
+		IntStream.range(0, (height + rowsForEachStripe - 1) / rowsForEachStripe).parallel()
+				.forEach(stripe -> filterStripe(indices, indexToSortedIndex, width, height, filteredPoints,
+						stripe * rowsForEachStripe, Math.min(height, (stripe + 1) * rowsForEachStripe)));
 
 		LOG.debug("Filtered homogeneous points in {} ms", (System.nanoTime() - startTime) / 1000000);
 
@@ -79,84 +66,108 @@ public class GIFPointFilterHomogeneous
 	}
 
 	/**
-	 * Returns a sub-matrix of all indices with each index having set its LSBs to zero
+	 * Adds the points of the rows from fromRow (inclusive) to toRow (exclusive) that are part of a
+	 * homogeneous 3x3 area to the filtered points
 	 *
-	 * @param width The width of the matrix
-	 * @param sliceStartIncl The start row of the pixels, inclusive
-	 * @param sliceEndExcl The end row of the pixels, exclusive
-	 * @return
+	 * @param indices The color indices of all pixels
+	 * @param indexToSortedIndex
+	 * @param width
+	 * @param height
+	 * @param filteredPoints
+	 * @param fromRow
+	 * @param toRow
 	 */
-	private int[][] getNormalizedRows(int width, int sliceStartIncl, int sliceEndExcl) {
-		int height = sliceEndExcl - sliceStartIncl;
-		int[][] normalizedRows = new int[width][height];
-
-		for (int y = sliceStartIncl; y < sliceEndExcl; y++) {
-			for (int x = 0; x < width; x++) {
-				int index = indices[y * width + x];
-				int sortedIndex = indexToSortedIndex.get(index);
+	private void filterStripe(byte[] indices, int[] indexToSortedIndex, int width, int height,
+			FilteredPoints filteredPoints, int fromRow, int toRow) {
+		int numWords = (width + 63) >>> 6;
+
+		// Normalized indices of the last 3 rows read, row y is stored at y % 3
+		byte[][] rows = new byte[3][width];
+
+		// Points of the 3x3 areas around homogeneous centers in row y, stored at (y + 3) % 3
+		long[][] areas = new long[3][numWords];
+
+		long[] centers = new long[numWords];
+		long[] filtered = new long[numWords];
+
+		int nextRow = Math.max(0, fromRow - 2);
+		int nextCenterRow = fromRow - 1;
+		for (int y = fromRow; y < toRow; y++) {
+			// Each point can be part of the areas around the centers in the rows above and below
+			for (; nextCenterRow <= y + 1; nextCenterRow++) {
+				long[] area = areas[(nextCenterRow + 3) % 3];
+				if (nextCenterRow < 1 || nextCenterRow > height - 2) {
+					Arrays.fill(area, 0);
+					continue;
+				}
+				for (; nextRow <= nextCenterRow + 1; nextRow++) {
+					readNormalizedRow(indices, indexToSortedIndex, nextRow, rows[nextRow % 3]);
+				}
+				findHomogeneousCenters(rows[(nextCenterRow - 1) % 3], rows[nextCenterRow % 3],
+						rows[(nextCenterRow + 1) % 3], centers);
+				expandHorizontally(centers, area);
+			}
 
-				// Set last bit of the sorted index to 0 because it will be changed after embedding
-				normalizedRows[x][y - sliceStartIncl] = sortedIndex & ~0b1;
+			boolean anyFiltered = false;
+			for (int i = 0; i < numWords; i++) {
+				filtered[i] = areas[0][i] | areas[1][i] | areas[2][i];
+				anyFiltered |= filtered[i] != 0;
+			}
+			if (anyFiltered) {
+				filteredPoints.addBits(y * width, filtered, width);
 			}
 		}
+	}
 
-		return normalizedRows;
+	/**
+	 * Reads a row of indices into the sorted color table
+	 */
+	private void readNormalizedRow(byte[] indices, int[] indexToSortedIndex, int y, byte[] row) {
+		int offset = y * row.length;
+		for (int x = 0; x < row.length; x++) {
+			// Set last bit of the sorted index to 0 because it will be changed after embedding
+			row[x] = (byte) (indexToSortedIndex[indices[offset + x] & 0xFF] & ~0b1);
+		}
 	}
 
 	/**
-	 * Returns a list with points of homogeneous areas in the normalizedRows matrix. Each returned
-	 * point has the row offset (sliceStartIncl) added so it is an absolute position in the image.
-	 *
-	 * @param normalizedRows
-	 * @param sliceStartIncl
-	 * @param sliceEndExcl
-	 * @param width
+	 * Sets bit x of centers if all 9 pixels of the 3x3 area around x in the center row are the same
 	 */
-	private Collection<Point> collectHomogeneousPointsOfRows(int[][] normalizedRows, int sliceStartIncl,
-			int sliceEndExcl, int width) {
-
-		Collection<Point> filteredPoints = new ArrayList<>();
-
-		for (int y = 0; y < sliceEndExcl - sliceStartIncl; y++) {
-			// Indicates the left-most column of the current homogeneous area. -1 means we are not
-			// in a homogeneous area.
-			int homogeneousColumnStart = -1;
-
-			for (int x = 0; x < width; x++) {
-				int thisColumnColor = normalizedRows[x][y];
-
-				// True if all 3 pixels of the current column are the same
-				boolean isHomogeneousColumn = normalizedRows[x][y + 1] == thisColumnColor
-						&& normalizedRows[x][y + 2] == thisColumnColor;
-
-				// True if current column is part of a previously started homogeneous area
-				if (isHomogeneousColumn && homogeneousColumnStart != -1
-						&& thisColumnColor == normalizedRows[homogeneousColumnStart][y]) {
-					// Jump to next column if the current column belongs the current homogeneous
-					// field. In the last column we need to pretend we are 1 column ahead so that we
-					// can correctly collect all points.
-					if (x + 1 == width) {
-						x++;
-					} else {
-						continue;
-					}
-				}
+	private void findHomogeneousCenters(byte[] above, byte[] center, byte[] below, long[] centers) {
+		Arrays.fill(centers, 0);
 
-				// Collect all points of the homogeneous area if it's at 3 pixels wide
-				if (homogeneousColumnStart != -1 && x - homogeneousColumnStart >= 3) {
-					for (int dX = homogeneousColumnStart; dX < x; dX++) {
-						for (int dY = 0; dY < 3; dY++) {
-							filteredPoints.add(new Point(dX, sliceStartIncl + y + dY));
-						}
-					}
-				}
+		if (center.length < 3) {
+			return;
+		}
 
-				// If this column is homogeneous we are at the beginning of a new homogeneous area
-				homogeneousColumnStart = isHomogeneousColumn ? x : -1;
+		// True if all 3 pixels of the previous, the current and the next column are the same
+		boolean previousColumn = isHomogeneousColumn(above, center, below, 0);
+		boolean currentColumn = isHomogeneousColumn(above, center, below, 1);
+		for (int x = 1; x < center.length - 1; x++) {
+			boolean nextColumn = isHomogeneousColumn(above, center, below, x + 1);
+			if (previousColumn && currentColumn && nextColumn && center[x - 1] == center[x]
+					&& center[x + 1] == center[x]) {
+				centers[x >>> 6] |= 1L << x;
 			}
+			previousColumn = currentColumn;
+			currentColumn = nextColumn;
 		}
+	}
 
-		return filteredPoints;
+	private static boolean isHomogeneousColumn(byte[] above, byte[] center, byte[] below, int x) {
+		return above[x] == center[x] && below[x] == center[x];
+	}
+
+	/**
+	 * Sets bits x - 1, x and x + 1 of area for each bit x set in centers
+	 */
+	private void expandHorizontally(long[] centers, long[] area) {
+		for (int i = 0; i < centers.length; i++) {
+			long word = centers[i];
+			long carryIn = i > 0 ? centers[i - 1] >>> 63 : 0;
+			long carryOut = i + 1 < centers.length ? centers[i + 1] << 63 : 0;
+			area[i] = word | (word << 1) | carryIn | (word >>> 1) | carryOut;
+		}
 	}
 
 	/**
@@ -172,14 +183,14 @@ public class GIFPointFilterHomogeneous
 		image.load(new File("src/test/resources/sunflower.gif"));
 
 		PointFilter<GIFImage> filter = new GIFPointFilterHomogeneous();
-		Collection<Point> filteredPoints = filter.getFilteredPoints(image);
+		FilteredPoints filteredPoints = filter.getFilteredPoints(image);
 
 		LOG.debug("Total pixels: {} * {} = {}", image.getWidth(), image.getHeight(),
 				image.getWidth() * image.getHeight());
-		LOG.debug("Count of non-noise pixels: {}", filteredPoints.size());
+		LOG.debug("Count of non-noise pixels: {}", filteredPoints.count());
 
-		for (Point p : filteredPoints) {
-			image.getBufferedImage().setRGB(p.x, p.y, Color.RED.getRGB());
+		for (int i = filteredPoints.nextFiltered(0); i >= 0; i = filteredPoints.nextFiltered(i + 1)) {
+			image.getBufferedImage().setRGB(i % image.getWidth(), i / image.getWidth(), Color.RED.getRGB());
 		}
 		image.save(new File("src/test/resources/sunflower_noise.gif"));
 	}
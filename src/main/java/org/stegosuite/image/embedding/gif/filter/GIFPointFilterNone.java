@@ -1,12 +1,9 @@
 package org.stegosuite.image.embedding.gif.filter;
 
+import org.stegosuite.image.embedding.point.FilteredPoints;
 import org.stegosuite.image.embedding.point.PointFilter;
 import org.stegosuite.image.format.GIFImage;
 
-import java.awt.*;
-import java.util.ArrayList;
-import java.util.Collection;
-
 /**
  * Allows embedding into all points of a GIF image
  */
@@ -19,8 +16,8 @@ public class GIFPointFilterNone
 	}
 
 	@Override
-	protected Collection<Point> filter(GIFImage image) {
-		return new ArrayList<>();
+	protected FilteredPoints filter(GIFImage image) {
+		return new FilteredPoints(image.getWidth(), image.getHeight());
 	}
 
 }
@@ -6,6 +6,7 @@ import org.stegosuite.image.embedding.EmbeddingMethod;
 import org.stegosuite.image.embedding.EmbeddingProgress;
 import org.stegosuite.image.embedding.point.PointFilter;
 import org.stegosuite.image.format.JPGImage;
+import org.stegosuite.image.jpgtemp.james.JpegCoefficientPlane;
 import org.stegosuite.image.jpgtemp.james.JpegEncoder;
 import org.stegosuite.image.jpgtemp.net.f5.Extract;
 import org.stegosuite.model.exception.SteganoEmbedException;
@@ -19,6 +20,7 @@ import org.stegosuite.model.payload.block.MessageBlock;
 import org.stegosuite.util.FileUtils;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 
@@ -27,15 +29,18 @@ public class JPGF5
 
 	private static final Logger LOG = LoggerFactory.getLogger(JPGF5.class);
 
+	/**
+	 * Quality of the steganogram, 0 is worst, 100 is best
+	 */
+	private static final int QUALITY = 80;
+
 	public JPGF5(JPGImage image, PointFilter<JPGImage> pointFilter) {
 		super(image, pointFilter);
 	}
 
 	@Override
 	protected int doCapacity(JPGImage image) {
-		JpegEncoder jpg = new JpegEncoder(image.getBufferedImage(), 80, null, null);
-
-		return jpg.getCapacity();
+		return image.getCoefficientPlane(QUALITY).getCapacity();
 	}
 
 	@Override
@@ -45,11 +50,13 @@ public class JPGF5
 		PayloadEmbedder embedder = new PayloadEmbedder(payload, this.capacity());
 
 		final String comment = "JPEG Encoder Copyright 1998, James R. Weeks and BioElectroMech.  ";
-		final int quality = 80; // 0 is worst, 100 is best
 
 		ByteArrayOutputStream dataOut = new ByteArrayOutputStream();
 
-		JpegEncoder jpg = new JpegEncoder(image.getBufferedImage(), quality, dataOut, comment);
+		JpegCoefficientPlane plane = image.getCoefficientPlane(QUALITY);
+		JpegEncoder jpg = new JpegEncoder(plane, dataOut, comment);
+		// A restart marker after each MCU row lets the rows be encoded and decoded in parallel
+		jpg.setRestartInterval(plane.getMinBlockWidth());
 		jpg.Compress(new ByteArrayInputStream(embedder.getPayloadBytes()), payload.getSteganoPassword());
 		String outputPath = FileUtils.addFileNameSuffix(image.getFile().getAbsolutePath(), "_embed");
 
@@ -76,17 +83,12 @@ public class JPGF5
 	protected void doExtract(JPGImage image, Payload payload, EmbeddingProgress progress)
 			throws SteganoExtractException {
 
-		FileInputStream fis = null;
-		ByteArrayOutputStream baos = null;
-		try {
-			fis = new FileInputStream(image.getFile());
-			baos = new ByteArrayOutputStream();
-
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		try {
-			Extract.extract(fis, (int) image.getFile().length(), baos, payload.getSteganoPassword());
+			// Read into the heap rather than mapping the file, a mapping keeps the file locked on
+			// Windows until it is garbage collected
+			Extract.extract(ByteBuffer.wrap(Files.readAllBytes(image.getFile().toPath())), baos,
+					payload.getSteganoPassword());
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -101,10 +103,10 @@ public class JPGF5
 			e.printStackTrace();
 		}
 		PayloadExtractor extractor = new PayloadExtractor(payload);
-		int i = 0;
-		while (!extractor.finished() && i < payloadBytes.length) {
-			extractor.processByte(payloadBytes[i++]);
-		}
+		extractor.processBytes(payloadBytes, 0, payloadBytes.length);
+
+		// Unpacks the payload if all of its bytes were extracted
+		extractor.finished();
 	}
 
 	// TODO: Move this into tests
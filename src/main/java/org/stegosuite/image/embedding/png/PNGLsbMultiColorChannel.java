@@ -4,11 +4,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.stegosuite.image.embedding.EmbeddingMethod;
 import org.stegosuite.image.embedding.EmbeddingProgress;
+import org.stegosuite.image.embedding.LsbEngine;
+import org.stegosuite.image.embedding.LsbRaster;
+import org.stegosuite.image.embedding.MaskVisualizer;
 import org.stegosuite.image.embedding.Visualizer;
 import org.stegosuite.image.embedding.Visualizer.VisualizationMode;
 import org.stegosuite.image.embedding.Visualizer.Visualize;
 import org.stegosuite.image.embedding.point.PointFilter;
-import org.stegosuite.image.embedding.point.PointGenerator;
+import org.stegosuite.image.embedding.point.PointSequence;
+import org.stegosuite.image.embedding.point.SpreadingMode;
 import org.stegosuite.image.format.PNGImage;
 import org.stegosuite.model.exception.SteganoEmbedException;
 import org.stegosuite.model.exception.SteganoExtractException;
@@ -17,10 +21,8 @@ import org.stegosuite.model.payload.Payload;
 import org.stegosuite.model.payload.PayloadEmbedder;
 import org.stegosuite.model.payload.PayloadExtractor;
 import org.stegosuite.util.ByteUtils;
-import org.stegosuite.util.RgbChannel;
 
 import java.awt.*;
-import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
@@ -37,6 +39,12 @@ public class PNGLsbMultiColorChannel
 
 	private static final Logger LOG = LoggerFactory.getLogger(PNGLsbMultiColorChannel.class);
 
+	/**
+	 * The spreading mode used for embedding. Extraction detects the mode on its own. Releases up
+	 * to 0.8.0 can only read {@link SpreadingMode#SHUFFLE}, so it stays the default for now.
+	 */
+	private SpreadingMode spreadingMode = SpreadingMode.SHUFFLE;
+
 	/**
 	 * Constructor
 	 *
@@ -48,9 +56,13 @@ public class PNGLsbMultiColorChannel
 		super(image, pointFilter);
 	}
 
+	public void setSpreadingMode(SpreadingMode spreadingMode) {
+		this.spreadingMode = spreadingMode;
+	}
+
 	@Override
 	public Visualizer createVisualizer(PNGImage image) {
-		return new Visualizer(image, new Visualize(VisualizationMode.ALTERED, Color.RED),
+		return new MaskVisualizer(image, new Visualize(VisualizationMode.ALTERED, Color.RED),
 				new Visualize(VisualizationMode.UNALTERED, Color.GREEN));
 	}
 
@@ -61,11 +73,12 @@ public class PNGLsbMultiColorChannel
 		// Embedding will be done on all 3 color channels
 		// Get the maximum number of LSBs from the point filter
 		int pixelCount = image.getWidth() * image.getHeight();
-		int filteredPixelCount = pointFilter.getFilteredPoints(image).size();
+		int filteredPixelCount = pointFilter.getFilteredPoints(image).count();
 		int embeddableBits = (pixelCount - filteredPixelCount) * 3 * pointFilter.maxLsbCount();
 		int embeddableBytes = embeddableBits / 8;
 
-		return embeddableBytes;
+		// The version marker of the spreading mode is embedded in front of the payload
+		return Math.max(0, embeddableBytes - spreadingMode.getHeader().length);
 	}
 
 	@Override
@@ -75,47 +88,17 @@ public class PNGLsbMultiColorChannel
 		LOG.debug("Performing PNG LSB embedding");
 
 		PayloadEmbedder payloadEmbedder = new PayloadEmbedder(payload, this.capacity());
-		int numPayloadBytes = payloadEmbedder.getPayloadBytes().length;
+		byte[] data = ByteUtils.concat(spreadingMode.getHeader(), payloadEmbedder.getPayloadBytes());
+		int numPayloadBytes = data.length;
 
 		// Initialize the data spreader
-		PointGenerator<PNGImage> pointGenerator = new PointGenerator<>(image, payload.getSteganoPassword(),
+		PointSequence pointGenerator = spreadingMode.newPointSequence(image, payload.getSteganoPassword(),
 				pointFilter);
 
-		int processedBits = 0;
-		Iterator<Byte> payloadBits = payloadEmbedder.iteratePayloadBits().iterator();
+		LsbEngine engine = new LsbEngine(LsbRaster.of(image.getBufferedImage()), pointGenerator, visualizer);
 
 		try {
-			while (payloadBits.hasNext()) {
-				// Get next point and its color
-				Point point = pointGenerator.nextPoint();
-				Color oldColor = new Color(image.getBufferedImage().getRGB(point.x, point.y));
-				Color newColor = new Color(oldColor.getRGB());
-
-				// Embed into all 3 color channels
-				for (RgbChannel channel : RgbChannel.RGB()) {
-					byte bit = payloadBits.next();
-					int channelValue = channel.getValue(newColor);
-					channelValue = ByteUtils.setBitAt(channelValue, pointGenerator.getIterationCount() - 1, bit);
-					newColor = channel.setValue(newColor, channelValue);
-
-					processedBits++;
-					if (!payloadBits.hasNext()) {
-						break;
-					}
-				}
-
-				// Update visualization
-				visualizer.visualize(point,
-						newColor.equals(oldColor) ? VisualizationMode.UNALTERED : VisualizationMode.ALTERED);
-
-				// Update pixel color
-				image.getBufferedImage().setRGB(point.x, point.y, newColor.getRGB());
-
-				// Update progress
-				if (progress != null) {
-					progress.progressUpdate(processedBits / 8, numPayloadBytes);
-				}
-			}
+			engine.embed(data, numPayloadBytes * 8, progress);
 		} catch (NoSuchElementException e) {
 			throw new SteganoEmbedException(e.getMessage());
 		}
@@ -127,29 +110,79 @@ public class PNGLsbMultiColorChannel
 
 		LOG.debug("Performing PNG LSB extraction");
 
+		boolean extracted = false;
+		try {
+			extracted = doExtract(image, payload, progress, SpreadingMode.PERMUTATION);
+		} catch (SteganoKeyException e) {
+			// The version marker matched by chance, the steganogram still is an older one. A wrong
+			// decryption password is reported as is, since the marker and length were valid.
+			LOG.debug("Extraction with {} spreading failed", SpreadingMode.PERMUTATION);
+		}
+
+		if (!extracted) {
+			LOG.debug("Falling back to {} spreading", SpreadingMode.SHUFFLE);
+			resetVisualizer(image);
+			doExtract(image, payload, progress, SpreadingMode.SHUFFLE);
+		}
+	}
+
+	/**
+	 * Extracts the payload using the passed spreading mode
+	 *
+	 * @return false if the version marker of the spreading mode was not found, in which case the
+	 *         payload is left untouched
+	 * @throws SteganoExtractException
+	 */
+	private boolean doExtract(PNGImage image, Payload payload, EmbeddingProgress progress,
+			SpreadingMode spreadingMode)
+			throws SteganoExtractException {
+
 		PayloadExtractor payloadExtractor = new PayloadExtractor(payload);
-		PointGenerator<PNGImage> pointGenerator = new PointGenerator<>(image, payload.getSteganoPassword(),
+		PointSequence pointGenerator = spreadingMode.newPointSequence(image, payload.getSteganoPassword(),
 				pointFilter);
+		LsbEngine engine = new LsbEngine(LsbRaster.of(image.getBufferedImage()), pointGenerator, visualizer);
+
+		// The version marker is read before the payload
+		int headerBits = spreadingMode.getHeader().length * 8;
+		int version = 0;
+		long processedBits = 0;
 
 		try {
 			while (!payloadExtractor.finished()) {
-				// Get next point and its color
-				Point point = pointGenerator.nextPoint();
-				Color color = new Color(image.getBufferedImage().getRGB(point.x, point.y));
-
-				// Extract from all 3 color channels
-				for (RgbChannel channel : RgbChannel.RGB()) {
-					int value = channel.getValue(color);
-					byte bit = ByteUtils.getBitAt(value, pointGenerator.getIterationCount() - 1);
-					payloadExtractor.processBit(bit);
-
-					if (payloadExtractor.finished()) {
-						break;
-					}
+				// Read point by point until the payload length is known, then all remaining points
+				// at once in parallel
+				int pointCount = 1;
+				if (payloadExtractor.getPayloadLength() != null) {
+					long totalBits = headerBits
+							+ (payloadExtractor.getPayloadLength() + Payload.LENGTH_NUM_BYTES) * 8L;
+					pointCount = (int) Math.min(LsbEngine.BATCH_SIZE, (totalBits - processedBits + 2) / 3);
 				}
 
-				// Update visualization
-				visualizer.visualize(point, VisualizationMode.ALTERED);
+				// Collect the bits of up to 21 points and pass them to the extractor at once
+				long bits = 0;
+				int bitCount = 0;
+				for (byte pointBits : engine.extract(pointCount)) {
+					int count = 3;
+					while (count > 0 && processedBits < headerBits) {
+						version = (version << 1) | ((pointBits >>> --count) & 1);
+						if (++processedBits == headerBits && version != spreadingMode.getVersion()) {
+							return false;
+						}
+					}
+					bits = (bits << count) | (pointBits & ((1 << count) - 1));
+					bitCount += count;
+					processedBits += count;
+
+					if (bitCount > 60) {
+						payloadExtractor.processBits(bits, bitCount);
+						bits = 0;
+						bitCount = 0;
+						if (payloadExtractor.finished()) {
+							break;
+						}
+					}
+				}
+				payloadExtractor.processBits(bits, bitCount);
 
 				// Update progress
 				if (progress != null && payloadExtractor.getPayloadLength() != null) {
@@ -162,5 +195,6 @@ public class PNGLsbMultiColorChannel
 					pointFilter.maxLsbCount());
 			throw new SteganoKeyException();
 		}
+		return true;
 	}
 }
@@ -2,6 +2,7 @@ package org.stegosuite.image.embedding.png.filter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.stegosuite.image.embedding.point.FilteredPoints;
 import org.stegosuite.image.embedding.point.PointFilter;
 import org.stegosuite.image.format.PNGImage;
 import org.stegosuite.model.exception.SteganoImageException;
@@ -12,6 +13,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * Removes all points that are part of homogeneous areas of a PNG image
@@ -32,71 +34,141 @@ public class PNGPointFilterHomogeneous
 	}
 
 	/**
-	 * Returns a list of all homogeneous areas
+	 * Returns a bitmap of all homogeneous areas. The image is split into horizontal stripes which
+	 * are filtered in parallel, each one reading 3 rows at a time.
 	 */
 	@Override
-	protected Collection<Point> filter(PNGImage image) {
-		int[][] normalizedRgbValues = getNormalizedRgbValues(image.getBufferedImage());
-		// long startTime = System.nanoTime();
-		Collection<Point> filteredPoints = new HashSet<>();
-		for (int x = 1; x < normalizedRgbValues.length - 1; x++) {
-			for (int y = 1; y < normalizedRgbValues[x].length - 1; y++) {
-				Collection<Point> homogenousPoints = getHomogeneousPoints(normalizedRgbValues, x, y);
-				filteredPoints.addAll(homogenousPoints);
-			}
-		}
-		// System.out.println("filter : " + (System.nanoTime() - startTime) / 1000000 + " ms");
+	protected FilteredPoints filter(PNGImage image) {
+		long startTime = System.nanoTime();
+		BufferedImage bufferedImage = image.getBufferedImage();
+		int height = image.getHeight();
+		FilteredPoints filteredPoints = new FilteredPoints(image.getWidth(), height);
+
+		// Stripes start at multiples of 64 rows, so each stripe writes its own words of the bitmap
+		int numStripes = Runtime.getRuntime().availableProcessors() * 4;
+		int rowsForEachStripe = Math.max(1, (height + 64 * numStripes - 1) / (64 * numStripes)) * 64;
+
+		IntStream.range(0, (height + rowsForEachStripe - 1) / rowsForEachStripe).parallel()
+				.forEach(stripe -> filterStripe(bufferedImage, filteredPoints, stripe * rowsForEachStripe,
+						Math.min(height, (stripe + 1) * rowsForEachStripe)));
+
+		LOG.debug("Filtered homogeneous points in {} ms", (System.nanoTime() - startTime) / 1000000);
 		return filteredPoints;
 	}
 
 	/**
-	 * Returns a matrix of all RGB values that are present in the image with each value having set
-	 * its LSBs for the 3 channels to zero.
-	 * 
+	 * Adds the points of the rows from fromRow (inclusive) to toRow (exclusive) that are part of a
+	 * homogeneous 3x3 area to the filtered points
+	 *
 	 * @param image
-	 * @return
+	 * @param filteredPoints
+	 * @param fromRow
+	 * @param toRow
 	 */
-	private int[][] getNormalizedRgbValues(BufferedImage image) {
+	private void filterStripe(BufferedImage image, FilteredPoints filteredPoints, int fromRow, int toRow) {
 		int width = image.getWidth();
 		int height = image.getHeight();
+		int numWords = (width + 63) >>> 6;
+
+		// Normalized RGB values of the last 3 rows read, row y is stored at y % 3
+		int[][] rows = new int[3][width];
+
+		// Points of the 3x3 areas around homogeneous centers in row y, stored at (y + 3) % 3
+		long[][] areas = new long[3][numWords];
+
+		long[] centers = new long[numWords];
+		long[] filtered = new long[numWords];
+
+		int nextRow = Math.max(0, fromRow - 2);
+		int nextCenterRow = fromRow - 1;
+		for (int y = fromRow; y < toRow; y++) {
+			// Each point can be part of the areas around the centers in the rows above and below
+			for (; nextCenterRow <= y + 1; nextCenterRow++) {
+				long[] area = areas[(nextCenterRow + 3) % 3];
+				if (nextCenterRow < 1 || nextCenterRow > height - 2) {
+					Arrays.fill(area, 0);
+					continue;
+				}
+				for (; nextRow <= nextCenterRow + 1; nextRow++) {
+					readNormalizedRow(image, nextRow, rows[nextRow % 3]);
+				}
+				findHomogeneousCenters(rows[(nextCenterRow - 1) % 3], rows[nextCenterRow % 3],
+						rows[(nextCenterRow + 1) % 3], centers);
+				expandHorizontally(centers, area);
+			}
 
-		int[][] rgbValues = new int[width][];
-		for (int x = 0; x < width; x++) {
-			rgbValues[x] = new int[height];
-			for (int y = 0; y < height; y++) {
-				rgbValues[x][y] = image.getRGB(x, y) & MASK_LSBS_TO_ZERO;
+			boolean anyFiltered = false;
+			for (int i = 0; i < numWords; i++) {
+				filtered[i] = areas[0][i] | areas[1][i] | areas[2][i];
+				anyFiltered |= filtered[i] != 0;
+			}
+			if (anyFiltered) {
+				filteredPoints.addBits(y * width, filtered, width);
 			}
 		}
-
-		return rgbValues;
 	}
 
 	/**
-	 * Returns a list of points that are part of a homogeneous area around the x and y coordinate.
-	 * Returns an empty list if the area is not homogeneous.
-	 * 
-	 * @param normalizedRgbValues
-	 * @param x
-	 * @param y
-	 * @return
+	 * Reads a row of RGB values with the LSBs of the 3 channels set to zero
 	 */
-	private Collection<Point> getHomogeneousPoints(int[][] normalizedRgbValues, int x, int y) {
-		Collection<Point> homogeneousPoints = new ArrayList<>();
-		int referenceRgbValue = normalizedRgbValues[x][y];
-		// System.out.println(Integer.toBinaryString(referenceRgbValue));
-		for (int dX = x - 1; dX <= x + 1; dX++) {
-			for (int dY = y - 1; dY <= y + 1; dY++) {
-				// As soon as 1 pixel in the area is different than the pixel in
-				// the center, the area is considered NOT to be homogeneous.
-				if (dX != x && dY != y && normalizedRgbValues[dX][dY] != referenceRgbValue) {
-					return Collections.emptyList();
-				}
+	private void readNormalizedRow(BufferedImage image, int y, int[] row) {
+		image.getRGB(0, y, row.length, 1, row, 0, row.length);
+		for (int x = 0; x < row.length; x++) {
+			row[x] &= MASK_LSBS_TO_ZERO;
+		}
+	}
 
-				homogeneousPoints.add(new Point(dX, dY));
+	/**
+	 * Sets bit x of centers if the 3x3 area around x in the center row is homogeneous. As soon as
+	 * 1 of the corner pixels of the area is different than the pixel in the center, the area is
+	 * considered NOT to be homogeneous.
+	 */
+	private void findHomogeneousCenters(int[] above, int[] center, int[] below, long[] centers) {
+		Arrays.fill(centers, 0);
+		for (int x = 1; x < center.length - 1; x++) {
+			int reference = center[x];
+			// Zero if and only if all 4 corners equal the center
+			int difference = (above[x - 1] ^ reference) | (above[x + 1] ^ reference) | (below[x - 1] ^ reference)
+					| (below[x + 1] ^ reference);
+			if (difference == 0) {
+				centers[x >>> 6] |= 1L << x;
 			}
 		}
+	}
+
+	/**
+	 * Sets bits x - 1, x and x + 1 of area for each bit x set in centers
+	 */
+	private void expandHorizontally(long[] centers, long[] area) {
+		for (int i = 0; i < centers.length; i++) {
+			long word = centers[i];
+			long carryIn = i > 0 ? centers[i - 1] >>> 63 : 0;
+			long carryOut = i + 1 < centers.length ? centers[i + 1] << 63 : 0;
+			area[i] = word | (word << 1) | carryIn | (word >>> 1) | carryOut;
+		}
+	}
 
-		return homogeneousPoints;
+	/**
+	 * Returns true if the point is part of any homogeneous 3x3 area. Only looks at the pixels
+	 * around the point instead of filtering the whole image.
+	 */
+	@Override
+	protected boolean filter(PNGImage image, int x, int y) {
+		BufferedImage bufferedImage = image.getBufferedImage();
+		int width = bufferedImage.getWidth();
+		int height = bufferedImage.getHeight();
+		for (int centerX = Math.max(1, x - 1); centerX <= Math.min(width - 2, x + 1); centerX++) {
+			for (int centerY = Math.max(1, y - 1); centerY <= Math.min(height - 2, y + 1); centerY++) {
+				int referenceRgbValue = bufferedImage.getRGB(centerX, centerY) & MASK_LSBS_TO_ZERO;
+				if ((bufferedImage.getRGB(centerX - 1, centerY - 1) & MASK_LSBS_TO_ZERO) == referenceRgbValue
+						&& (bufferedImage.getRGB(centerX + 1, centerY - 1) & MASK_LSBS_TO_ZERO) == referenceRgbValue
+						&& (bufferedImage.getRGB(centerX - 1, centerY + 1) & MASK_LSBS_TO_ZERO) == referenceRgbValue
+						&& (bufferedImage.getRGB(centerX + 1, centerY + 1) & MASK_LSBS_TO_ZERO) == referenceRgbValue) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -124,12 +196,12 @@ public class PNGPointFilterHomogeneous
 		}
 
 		PointFilter<PNGImage> filter = new PNGPointFilterHomogeneous();
-		Collection<Point> filteredPoints = filter.getFilteredPoints(pngImage);
-		LOG.debug("Count of non-noise pixels: {}", filteredPoints.size());
+		FilteredPoints filteredPoints = filter.getFilteredPoints(pngImage);
+		LOG.debug("Count of non-noise pixels: {}", filteredPoints.count());
 
 		BufferedImage bufferedImage = pngImage.getBufferedImage();
-		for (Point p : filteredPoints) {
-			bufferedImage.setRGB(p.x, p.y, Color.RED.getRGB());
+		for (int i = filteredPoints.nextFiltered(0); i >= 0; i = filteredPoints.nextFiltered(i + 1)) {
+			bufferedImage.setRGB(i % pngImage.getWidth(), i / pngImage.getWidth(), Color.RED.getRGB());
 		}
 		pngImage.setBufferedImage(bufferedImage);
 
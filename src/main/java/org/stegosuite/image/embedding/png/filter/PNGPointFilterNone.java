@@ -1,12 +1,9 @@
 package org.stegosuite.image.embedding.png.filter;
 
+import org.stegosuite.image.embedding.point.FilteredPoints;
 import org.stegosuite.image.embedding.point.PointFilter;
 import org.stegosuite.image.format.PNGImage;
 
-import java.awt.*;
-import java.util.ArrayList;
-import java.util.Collection;
-
 /**
  * Allows embedding into all points of a PNG image
  */
@@ -19,8 +16,13 @@ public class PNGPointFilterNone
 	}
 
 	@Override
-	protected Collection<Point> filter(PNGImage image) {
-		return new ArrayList<>();
+	protected FilteredPoints filter(PNGImage image) {
+		return new FilteredPoints(image.getWidth(), image.getHeight());
+	}
+
+	@Override
+	protected boolean filter(PNGImage image, int x, int y) {
+		return false;
 	}
 
 }
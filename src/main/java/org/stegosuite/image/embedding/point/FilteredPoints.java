@@ -0,0 +1,194 @@
+package org.stegosuite.image.embedding.point;
+
+/**
+ * The result of a {@link PointFilter}: a packed bitmap over the linear pixel indices
+ * ({@code y * width + x}) of an image, where a set bit marks a point that should NOT be used when
+ * embedding or extracting.
+ */
+public class FilteredPoints {
+
+	/**
+	 * Width of the image the bitmap is covering
+	 */
+	private final int width;
+
+	/**
+	 * Height of the image the bitmap is covering
+	 */
+	private final int height;
+
+	/**
+	 * Bit {@code i % 64} of word {@code i / 64} is set if the point with linear index {@code i} is
+	 * filtered
+	 */
+	private final long[] words;
+
+	/**
+	 * Number of filtered points, -1 if it has to be recounted
+	 */
+	private int count = 0;
+
+	/**
+	 * Creates an empty bitmap, i.e. no point is filtered
+	 *
+	 * @param width
+	 * @param height
+	 */
+	public FilteredPoints(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.words = new long[(width * height + 63) >>> 6];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Marks the point with the passed linear index as filtered
+	 *
+	 * @param index
+	 */
+	public void add(int index) {
+		words[index >>> 6] |= 1L << index;
+		count = -1;
+	}
+
+	/**
+	 * Marks the point at the passed coordinates as filtered
+	 *
+	 * @param x
+	 * @param y
+	 */
+	public void add(int x, int y) {
+		add(y * width + x);
+	}
+
+	/**
+	 * Marks all points from fromIndex (inclusive) to toIndex (exclusive) as filtered
+	 *
+	 * @param fromIndex
+	 * @param toIndex
+	 */
+	public void addRange(int fromIndex, int toIndex) {
+		if (fromIndex >= toIndex) {
+			return;
+		}
+		int fromWord = fromIndex >>> 6;
+		int toWord = (toIndex - 1) >>> 6;
+		long firstMask = -1L << fromIndex;
+		long lastMask = -1L >>> -toIndex;
+		if (fromWord == toWord) {
+			words[fromWord] |= firstMask & lastMask;
+		} else {
+			words[fromWord] |= firstMask;
+			for (int i = fromWord + 1; i < toWord; i++) {
+				words[i] = -1L;
+			}
+			words[toWord] |= lastMask;
+		}
+		count = -1;
+	}
+
+	/**
+	 * Marks the points fromIndex + i as filtered for each set bit i of bits, up to length. Only
+	 * words containing set bits are written, so threads may add disjoint, word-aligned ranges of
+	 * the bitmap at the same time.
+	 *
+	 * @param fromIndex
+	 * @param bits bit {@code i % 64} of word {@code i / 64} is set if point fromIndex + i is
+	 *        filtered
+	 * @param length number of bits to add
+	 */
+	public void addBits(int fromIndex, long[] bits, int length) {
+		int wordIndex = fromIndex >>> 6;
+		int shift = fromIndex & 63;
+		for (int i = 0; i < (length + 63) >>> 6; i++) {
+			long word = bits[i];
+			if (i == (length - 1) >>> 6) {
+				// Ignore bits beyond length
+				word &= -1L >>> -length;
+			}
+			if (word == 0) {
+				continue;
+			}
+			words[wordIndex + i] |= word << shift;
+			if (shift != 0 && (word >>> (64 - shift)) != 0) {
+				words[wordIndex + i + 1] |= word >>> (64 - shift);
+			}
+		}
+		count = -1;
+	}
+
+	/**
+	 * Returns true if the point with the passed linear index is filtered
+	 *
+	 * @param index
+	 * @return
+	 */
+	public boolean isFiltered(int index) {
+		return (words[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Returns true if the point at the passed coordinates is filtered
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean isFiltered(int x, int y) {
+		return isFiltered(y * width + x);
+	}
+
+	/**
+	 * Returns the number of filtered points
+	 *
+	 * @return
+	 */
+	public int count() {
+		if (count < 0) {
+			int bitCount = 0;
+			for (long word : words) {
+				bitCount += Long.bitCount(word);
+			}
+			count = bitCount;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the index of the first filtered point at or after fromIndex, or -1 if there is none
+	 *
+	 * @param fromIndex
+	 * @return
+	 */
+	public int nextFiltered(int fromIndex) {
+		int size = width * height;
+		if (fromIndex >= size) {
+			return -1;
+		}
+		int wordIndex = fromIndex >>> 6;
+		long word = words[wordIndex] & (-1L << fromIndex);
+		while (word == 0) {
+			if (++wordIndex == words.length) {
+				return -1;
+			}
+			word = words[wordIndex];
+		}
+		return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Returns the backing words of the bitmap. Bits beyond {@code width * height} are always 0.
+	 *
+	 * @return
+	 */
+	long[] getWords() {
+		return words;
+	}
+}
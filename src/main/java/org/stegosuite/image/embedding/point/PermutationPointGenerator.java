@@ -0,0 +1,175 @@
+package org.stegosuite.image.embedding.point;
+
+import org.stegosuite.image.format.ImageFormat;
+import org.stegosuite.util.CryptoUtils;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Generates random points using a keyed permutation over all linear pixel indices
+ * {@code [0, width * height)}. Unlike {@link PointGenerator} no list of points is built up front:
+ * the i-th point of an iteration is computed on demand by a balanced Feistel network, and indices
+ * that fall outside the image are cycle-walked back into it. Filtered points are skipped by asking
+ * the filter about single points, so only the points that are actually used are ever looked at.
+ */
+public class PermutationPointGenerator<T extends ImageFormat>
+		implements PointSequence {
+
+	/**
+	 * Number of Feistel rounds per permutation
+	 */
+	private static final int ROUNDS = 4;
+
+	/**
+	 * The image to generate points for
+	 */
+	private final T image;
+
+	/**
+	 * The filter deciding which points to skip
+	 */
+	private final PointFilter<T> pointFilter;
+
+	/**
+	 * PRNG deriving the round keys of each iteration, null if no key is provided
+	 */
+	private final Random random;
+
+	private final int width;
+
+	/**
+	 * Size of the permutation domain, width * height
+	 */
+	private final int pointCount;
+
+	/**
+	 * Number of bits of each half of the Feistel network
+	 */
+	private final int halfBits;
+
+	private final long halfMask;
+
+	/**
+	 * Round keys of the current iteration
+	 */
+	private final long[] roundKeys = new long[ROUNDS];
+
+	/**
+	 * Position of the next point in the current iteration
+	 */
+	private int position = 0;
+
+	/**
+	 * The maximum number of iterations
+	 */
+	private final int maxIterations;
+
+	/**
+	 * The number of iterations started so far
+	 */
+	private int iterationCount = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param image The image to generate points for
+	 * @param key The key for the permutation. If key is null, points are generated in row-major
+	 *        order
+	 * @param pointFilter The filter deciding which points to skip
+	 */
+	public PermutationPointGenerator(T image, String key, PointFilter<T> pointFilter) {
+		this.image = image;
+		this.pointFilter = pointFilter;
+		this.random = key == null ? null : CryptoUtils.seededRandom(key);
+		this.maxIterations = pointFilter.maxLsbCount();
+		this.width = image.getWidth();
+		this.pointCount = image.getWidth() * image.getHeight();
+
+		// Smallest even number of bits covering all indices, so the domain is less than 4 times
+		// the image and cycle-walking needs less than 4 steps on average
+		int bits = Math.max(2, 32 - Integer.numberOfLeadingZeros(pointCount - 1));
+		this.halfBits = (bits + 1) / 2;
+		this.halfMask = (1L << halfBits) - 1;
+	}
+
+	/**
+	 * Starts the next iteration with fresh round keys
+	 */
+	private void nextIteration() {
+		if (iterationCount >= maxIterations) {
+			throw new NoSuchElementException("No more points to generate");
+		}
+		if (random != null) {
+			for (int i = 0; i < ROUNDS; i++) {
+				roundKeys[i] = random.nextLong();
+			}
+		}
+		position = 0;
+		iterationCount++;
+	}
+
+	@Override
+	public int nextIndex()
+			throws NoSuchElementException {
+		while (true) {
+			if (iterationCount == 0 || position == pointCount) {
+				nextIteration();
+			}
+			int index = permute(position++);
+			if (!pointFilter.isFiltered(image, index % width, index / width)) {
+				return index;
+			}
+		}
+	}
+
+	/**
+	 * Maps the passed position to its point index. Each value in {@code [0, width * height)} is
+	 * mapped to a distinct value in the same range.
+	 *
+	 * @param position
+	 * @return
+	 */
+	int permute(int position) {
+		if (random == null) {
+			return position;
+		}
+		long value = position;
+		do {
+			value = encrypt(value);
+		} while (value >= pointCount);
+		return (int) value;
+	}
+
+	/**
+	 * One pass through the Feistel network, a bijection on {@code [0, 2^(2 * halfBits))}
+	 */
+	private long encrypt(long value) {
+		long left = value >>> halfBits;
+		long right = value & halfMask;
+		for (long roundKey : roundKeys) {
+			long next = left ^ (mix(right ^ roundKey) & halfMask);
+			left = right;
+			right = next;
+		}
+		return (left << halfBits) | right;
+	}
+
+	/**
+	 * Round function, the finalizer of MurmurHash3
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+		value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return value ^ (value >>> 33);
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	@Override
+	public int getIterationCount() {
+		return iterationCount;
+	}
+}
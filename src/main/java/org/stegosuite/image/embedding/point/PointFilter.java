@@ -2,8 +2,6 @@ package org.stegosuite.image.embedding.point;
 
 import org.stegosuite.image.format.ImageFormat;
 
-import java.awt.*;
-import java.util.Collection;
 
 /**
  * A filter can be applied to prevent certain points from being generated by the PointGenerator
@@ -11,9 +9,9 @@ import java.util.Collection;
 public abstract class PointFilter<T extends ImageFormat> {
 
 	/**
-	 * Contains the list of points that should be skipped when embedding or extracting
+	 * Contains the points that should be skipped when embedding or extracting
 	 */
-	private Collection<Point> filteredPoints = null;
+	private FilteredPoints filteredPoints = null;
 
 	/**
 	 * Returns the number of LSBs that the filter limits the embedding method to
@@ -23,22 +21,54 @@ public abstract class PointFilter<T extends ImageFormat> {
 	public abstract int maxLsbCount();
 
 	/**
-	 * Generates a list of points that should NOT be used when embedding or extracting. Implemented
-	 * by the subclasses.
+	 * Generates a bitmap of points that should NOT be used when embedding or extracting.
+	 * Implemented by the subclasses.
 	 * 
 	 * @param image
 	 * @return
 	 */
-	protected abstract Collection<Point> filter(T image);
+	protected abstract FilteredPoints filter(T image);
 
 	/**
-	 * Returns the list of points that should NOT be used when embedding or extracting
+	 * Returns true if the point at x and y should NOT be used when embedding or extracting.
+	 * Subclasses can override this to decide about a single point without filtering the whole
+	 * image.
+	 * 
+	 * @param image
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	protected boolean filter(T image, int x, int y) {
+		return getFilteredPoints(image).isFiltered(x, y);
+	}
+
+	/**
+	 * Returns true if the point at x and y should NOT be used when embedding or extracting. Uses
+	 * the bitmap of filtered points if it has already been generated.
+	 * 
+	 * @param image
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean isFiltered(T image, int x, int y) {
+		if (filteredPoints != null) {
+			return filteredPoints.isFiltered(x, y);
+		}
+		return filter(image, x, y);
+	}
+
+	/**
+	 * Returns the bitmap of points that should NOT be used when embedding or extracting
 	 * 
 	 * @return
 	 */
-	public Collection<Point> getFilteredPoints(T image) {
+	public FilteredPoints getFilteredPoints(T image) {
 		if (filteredPoints == null) {
 			filteredPoints = filter(image);
+			// Count once up front, capacity and point generation both need it
+			filteredPoints.count();
 		}
 		return filteredPoints;
 	}
@@ -11,8 +11,13 @@ import java.util.List;
  * This class is used for data spreading. It generates random 2D points using a key as a seed. Use
  * the same key to generate the same sequence of points. All generated points are limited to the
  * given bounds (width and height)
+ * <p>
+ * Points are kept as linear pixel indices ({@code y * width + x}) in a primitive array, which is
+ * shuffled in place the same way {@link Collections#shuffle(List, Random)} shuffles a list. This
+ * yields exactly the same sequence of points as a shuffled list of {@link Point} objects.
  */
-public class PointGenerator<T extends ImageFormat> {
+public class PointGenerator<T extends ImageFormat>
+		implements PointSequence {
 
 	/**
 	 * The image to generate points for
@@ -31,9 +36,30 @@ public class PointGenerator<T extends ImageFormat> {
 	private Random random = null;
 
 	/**
-	 * Contains all points that haven't been visited
+	 * Width of the image, used to convert between points and linear indices
 	 */
-	private List<Point> points = new LinkedList<>();
+	private final int width;
+
+	/**
+	 * Height of the image
+	 */
+	private final int height;
+
+	/**
+	 * Linear indices of all unfiltered points in shuffled order. Allocated on first seeding and
+	 * reused by every subsequent seeding.
+	 */
+	private int[] points = null;
+
+	/**
+	 * Position of the next point to return from {@link #points}
+	 */
+	private int position = 0;
+
+	/**
+	 * Contains the linear indices of all points that haven't been visited in the current iteration
+	 */
+	private BitSet remaining = new BitSet();
 
 	/**
 	 * The maximum number of times the points list should be seeded
@@ -58,6 +84,8 @@ public class PointGenerator<T extends ImageFormat> {
 		this.pointFilter = pointFilter;
 		this.random = key == null ? null : CryptoUtils.seededRandom(key);
 		this.maxIterations = pointFilter.maxLsbCount();
+		this.width = image.getWidth();
+		this.height = image.getHeight();
 	}
 
 	/**
@@ -68,39 +96,86 @@ public class PointGenerator<T extends ImageFormat> {
 			throw new NoSuchElementException("No more points to generate");
 		}
 
-		int width = image.getWidth();
-		int height = image.getHeight();
+		FilteredPoints filteredPoints = pointFilter.getFilteredPoints(image);
 
-		Collection<Point> filteredPoints = pointFilter.getFilteredPoints(image);
+		if (points == null) {
+			points = new int[width * height - filteredPoints.count()];
+		}
 
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				Point point = new Point(x, y);
-				if (!filteredPoints.contains(point)) {
-					points.add(point);
-				}
+		// Collect the unfiltered points in row-major order, one bitmap word at a time
+		long[] words = filteredPoints.getWords();
+		int pointCount = width * height;
+		long[] unfilteredWords = new long[words.length];
+		int size = 0;
+		for (int w = 0; w < words.length; w++) {
+			long unfiltered = ~words[w];
+			if (w == words.length - 1 && (pointCount & 63) != 0) {
+				unfiltered &= (1L << pointCount) - 1;
+			}
+			unfilteredWords[w] = unfiltered;
+			while (unfiltered != 0) {
+				points[size++] = (w << 6) + Long.numberOfTrailingZeros(unfiltered);
+				unfiltered &= unfiltered - 1;
 			}
 		}
 
 		if (random != null) {
-			Collections.shuffle(points, random);
+			// Same swap sequence as Collections.shuffle(List, Random)
+			for (int i = size; i > 1; i--) {
+				int j = random.nextInt(i);
+				int tmp = points[i - 1];
+				points[i - 1] = points[j];
+				points[j] = tmp;
+			}
 		}
 
+		remaining = BitSet.valueOf(unfilteredWords);
+		position = 0;
+
 		return ++iterationCount;
 	}
 
 	/**
-	 * Returns the next random point
+	 * Returns the linear index ({@code y * width + x}) of the next random point
 	 *
 	 * @return
 	 * @throws NoSuchElementException
 	 */
-	public Point nextPoint()
+	@Override
+	public int nextIndex()
 			throws NoSuchElementException {
-		if (points.isEmpty()) {
+		if (points == null || position == points.length) {
 			seedPoints();
+			if (points.length == 0) {
+				throw new NoSuchElementException("No points to generate");
+			}
 		}
-		return points.remove(0);
+		int index = points[position++];
+		remaining.clear(index);
+		return index;
+	}
+
+	/**
+	 * Returns the next random point
+	 *
+	 * @return
+	 * @throws NoSuchElementException
+	 */
+	public Point nextPoint()
+			throws NoSuchElementException {
+		int index = nextIndex();
+		return new Point(index % width, index / width);
+	}
+
+	/**
+	 * Returns true if the point at the passed linear index has been generated by nextIndex() or
+	 * nextPoint() in the current iteration phase, otherwise false
+	 *
+	 * @param index
+	 * @return
+	 */
+	public boolean wasGenerated(int index) {
+		return index < 0 || !remaining.get(index);
 	}
 
 	/**
@@ -111,7 +186,10 @@ public class PointGenerator<T extends ImageFormat> {
 	 * @return
 	 */
 	public boolean wasGenerated(Point point) {
-		return !points.contains(point);
+		if (point.x < 0 || point.x >= width || point.y < 0 || point.y >= height) {
+			return true;
+		}
+		return wasGenerated(point.y * width + point.x);
 	}
 
 	public int getMaxIterations() {
@@ -123,6 +201,7 @@ public class PointGenerator<T extends ImageFormat> {
 	 *
 	 * @return
 	 */
+	@Override
 	public int getIterationCount() {
 		return iterationCount;
 	}
@@ -0,0 +1,27 @@
+package org.stegosuite.image.embedding.point;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A keyed sequence of the unfiltered points of an image, used for data spreading. Points are
+ * identified by their linear index ({@code y * width + x}). Once all points have been returned,
+ * the sequence starts over with a new iteration until the maximum number of iterations is reached.
+ */
+public interface PointSequence {
+
+	/**
+	 * Returns the linear index ({@code y * width + x}) of the next point
+	 *
+	 * @return
+	 * @throws NoSuchElementException if the maximum number of iterations is exceeded
+	 */
+	int nextIndex()
+			throws NoSuchElementException;
+
+	/**
+	 * Returns the current iteration, starting at 1 for the first point
+	 *
+	 * @return
+	 */
+	int getIterationCount();
+}
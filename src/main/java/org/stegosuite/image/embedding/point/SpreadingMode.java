@@ -0,0 +1,71 @@
+package org.stegosuite.image.embedding.point;
+
+import org.stegosuite.image.format.ImageFormat;
+import org.stegosuite.util.ByteUtils;
+
+/**
+ * The different ways of spreading the payload over the points of an image. Steganograms of all
+ * modes except the original one start with a 4-byte version marker, so the extraction can tell
+ * which mode was used for embedding. A legacy steganogram or a wrong key matches a marker only
+ * with a chance of 1 in 2^32.
+ */
+public enum SpreadingMode {
+
+	/**
+	 * All unfiltered points are shuffled up front ({@link PointGenerator}). Steganograms carry no
+	 * version marker.
+	 */
+	SHUFFLE(0) {
+
+		@Override
+		public <T extends ImageFormat> PointSequence newPointSequence(T image, String key,
+				PointFilter<T> pointFilter) {
+			return new PointGenerator<>(image, key, pointFilter);
+		}
+	},
+
+	/**
+	 * Points are computed on demand by a keyed permutation ({@link PermutationPointGenerator})
+	 */
+	PERMUTATION(0x53545002) {
+
+		@Override
+		public <T extends ImageFormat> PointSequence newPointSequence(T image, String key,
+				PointFilter<T> pointFilter) {
+			return new PermutationPointGenerator<>(image, key, pointFilter);
+		}
+	};
+
+	/**
+	 * The version marker embedded in front of the payload, 0 if none is embedded
+	 */
+	private final int version;
+
+	SpreadingMode(int version) {
+		this.version = version;
+	}
+
+	/**
+	 * Creates the sequence of points to embed into or extract from
+	 *
+	 * @param image
+	 * @param key
+	 * @param pointFilter
+	 * @return
+	 */
+	public abstract <T extends ImageFormat> PointSequence newPointSequence(T image, String key,
+			PointFilter<T> pointFilter);
+
+	/**
+	 * Returns the bytes to embed in front of the payload, empty if the mode has no version marker
+	 *
+	 * @return
+	 */
+	public byte[] getHeader() {
+		return version == 0 ? new byte[0] : ByteUtils.intToBytes(version);
+	}
+
+	public int getVersion() {
+		return version;
+	}
+}
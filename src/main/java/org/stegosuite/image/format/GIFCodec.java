@@ -0,0 +1,545 @@
+package org.stegosuite.image.format;
+
+import java.awt.image.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes single image GIF files. The LZW codes are decoded straight into the byte array
+ * that backs the image raster, and encoded from it with a hashed string table. Extension blocks in
+ * front of the image are passed through unchanged, except for the transparency of the graphic
+ * control extension, which follows the color model of the image. Extension blocks behind the image,
+ * e.g. comments or XMP data, are written back in front of the trailer. Any further images are
+ * dropped, together with the graphic control extensions that belong to them.
+ * <p>
+ * The color table is read and written like ImageIO does, so the colors and indices of an image
+ * don't depend on which of both loaded or saved it.
+ */
+final class GIFCodec {
+
+	private static final int EXTENSION_INTRODUCER = 0x21;
+
+	private static final int IMAGE_SEPARATOR = 0x2C;
+
+	private static final int TRAILER = 0x3B;
+
+	private static final int GRAPHIC_CONTROL_LABEL = 0xF9;
+
+	private static final int MAX_CODE_SIZE = 12;
+
+	private static final int MAX_CODES = 1 << MAX_CODE_SIZE;
+
+	/**
+	 * Number of slots of the string table of the encoder, about twice the number of codes
+	 */
+	private static final int HASH_SIZE = MAX_CODES << 1;
+
+	private static final int MAX_SUB_BLOCK_LENGTH = 255;
+
+	private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+	private static final int[] INTERLACE_OFFSETS = { 0, 4, 2, 1 };
+
+	private static final int[] INTERLACE_STEPS = { 8, 8, 4, 2 };
+
+	private final FileChannel channel;
+
+	private final ByteBuffer buffer;
+
+	/**
+	 * Position of the length byte of the current data sub-block in the output buffer
+	 */
+	private int subBlockStart = -1;
+
+	private long bits = 0;
+
+	private int bitCount = 0;
+
+	private GIFCodec(FileChannel channel, ByteBuffer buffer) {
+		this.channel = channel;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Reads the first image of a GIF file
+	 *
+	 * @param file
+	 * @param extensions Receives the extension blocks in front of the image, including their
+	 *        introducer, label and block terminator
+	 * @param trailingExtensions Receives the extension blocks behind the image
+	 * @return An image with one byte per pixel and an IndexColorModel
+	 * @throws IOException
+	 */
+	static BufferedImage read(File file, List<byte[]> extensions, List<byte[]> trailingExtensions)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("GIF file is too large");
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {}
+			buffer.flip();
+			return new GIFCodec(channel, buffer).readImage(extensions, trailingExtensions);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Unexpected end of GIF file");
+		}
+	}
+
+	/**
+	 * Writes the image as GIF file
+	 *
+	 * @param image An image with one byte per pixel and an IndexColorModel
+	 * @param extensions The extension blocks to write in front of the image
+	 * @param trailingExtensions The extension blocks to write behind the image
+	 * @param file
+	 * @throws IOException
+	 */
+	static void write(BufferedImage image, List<byte[]> extensions, List<byte[]> trailingExtensions, File file)
+			throws IOException {
+		if (!(image.getColorModel() instanceof IndexColorModel)
+				|| !(image.getRaster().getDataBuffer() instanceof DataBufferByte)) {
+			throw new IOException("Only images with one byte per pixel and a color table can be written as GIF");
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			new GIFCodec(channel, buffer).writeImage(image, extensions, trailingExtensions);
+		}
+	}
+
+	private BufferedImage readImage(List<byte[]> extensions, List<byte[]> trailingExtensions)
+			throws IOException {
+		byte[] signature = new byte[6];
+		buffer.get(signature);
+		if (!new String(signature, StandardCharsets.US_ASCII).startsWith("GIF")) {
+			throw new IOException("Not a GIF file");
+		}
+
+		buffer.getShort(); // Logical screen width
+		buffer.getShort(); // Logical screen height
+		int flags = buffer.get() & 0xFF;
+		buffer.get(); // Background color index
+		buffer.get(); // Pixel aspect ratio
+		byte[] colorTable = (flags & 0x80) != 0 ? readColorTable(flags) : null;
+
+		int transparentIndex = -1;
+		while (buffer.hasRemaining()) {
+			int introducer = buffer.get() & 0xFF;
+			if (introducer == EXTENSION_INTRODUCER) {
+				int start = buffer.position() - 1;
+				int label = buffer.get() & 0xFF;
+				if (label == GRAPHIC_CONTROL_LABEL && buffer.remaining() >= 5 && (buffer.get(start + 2) & 0xFF) >= 4) {
+					boolean transparent = (buffer.get(start + 3) & 0x01) != 0;
+					transparentIndex = transparent ? buffer.get(start + 6) & 0xFF : -1;
+				}
+				skipSubBlocks();
+				extensions.add(Arrays.copyOfRange(buffer.array(), start, buffer.position()));
+			} else if (introducer == IMAGE_SEPARATOR) {
+				BufferedImage image = readImageData(colorTable, transparentIndex);
+				readTrailingExtensions(trailingExtensions);
+				return image;
+			} else if (introducer == TRAILER) {
+				break;
+			} else {
+				throw new IOException(String.format("Unknown GIF block 0x%02X", introducer));
+			}
+		}
+		throw new IOException("GIF file contains no image");
+	}
+
+	/**
+	 * Collects the extension blocks behind the image, up to the trailer or the next image. Graphic
+	 * control extensions are skipped, as they belong to the next image. Since the image has already
+	 * been read, a damaged remainder of the file just ends the search.
+	 */
+	private void readTrailingExtensions(List<byte[]> trailingExtensions) {
+		while (buffer.remaining() >= 2 && (buffer.get(buffer.position()) & 0xFF) == EXTENSION_INTRODUCER) {
+			int start = buffer.position();
+			buffer.get();
+			int label = buffer.get() & 0xFF;
+			skipSubBlocks();
+			if (label != GRAPHIC_CONTROL_LABEL) {
+				trailingExtensions.add(Arrays.copyOfRange(buffer.array(), start, buffer.position()));
+			}
+		}
+	}
+
+	private BufferedImage readImageData(byte[] globalColorTable, int transparentIndex)
+			throws IOException {
+		buffer.getShort(); // Left position
+		buffer.getShort(); // Top position
+		int width = buffer.getShort() & 0xFFFF;
+		int height = buffer.getShort() & 0xFFFF;
+		int flags = buffer.get() & 0xFF;
+		byte[] colorTable = (flags & 0x80) != 0 ? readColorTable(flags) : globalColorTable;
+		boolean interlaced = (flags & 0x40) != 0;
+		if (width == 0 || height == 0) {
+			throw new IOException("GIF image is empty");
+		}
+
+		int minCodeSize = buffer.get() & 0xFF;
+		if (minCodeSize < 1 || minCodeSize > 8) {
+			throw new IOException("Bad LZW code size: " + minCodeSize);
+		}
+		int dataStart = buffer.position();
+		int dataLength = skipSubBlocks();
+		byte[] data = new byte[dataLength];
+		buffer.position(dataStart);
+		for (int offset = 0, length; (length = nextSubBlockLength()) > 0; offset += length) {
+			buffer.get(data, offset, length);
+		}
+
+		IndexColorModel colorModel = createColorModel(colorTable, transparentIndex);
+		WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width, height, 1, null);
+		byte[] indices = ((DataBufferByte) raster.getDataBuffer()).getData();
+		if (interlaced) {
+			byte[] rows = new byte[indices.length];
+			decode(data, minCodeSize, rows);
+			deinterlace(rows, indices, width, height);
+		} else {
+			decode(data, minCodeSize, indices);
+		}
+
+		// Pixels that don't fit the bits per pixel of the color model are truncated
+		int mask = colorModel.getMapSize() - 1;
+		if (mask < (1 << minCodeSize) - 1) {
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] &= mask;
+			}
+		}
+		return new BufferedImage(colorModel, raster, false, null);
+	}
+
+	private byte[] readColorTable(int flags) {
+		byte[] colorTable = new byte[3 << ((flags & 0x07) + 1)];
+		buffer.get(colorTable);
+		return colorTable;
+	}
+
+	/**
+	 * Skips a sequence of data sub-blocks, including the block terminator
+	 *
+	 * @return The number of data bytes that were skipped
+	 */
+	private int skipSubBlocks() {
+		int dataLength = 0;
+		for (int length; (length = nextSubBlockLength()) > 0; dataLength += length) {
+			buffer.position(buffer.position() + length);
+		}
+		return dataLength;
+	}
+
+	/**
+	 * Reads the length of the next data sub-block. A file that ends within the sub-blocks is
+	 * treated as if they were terminated there.
+	 */
+	private int nextSubBlockLength() {
+		return buffer.hasRemaining() ? Math.min(buffer.get() & 0xFF, buffer.remaining()) : 0;
+	}
+
+	/**
+	 * Creates the color model the same way ImageIO does. The color table is padded with black to 2,
+	 * 4, 16 or 256 colors, and a default color table is used if the file has none.
+	 */
+	private static IndexColorModel createColorModel(byte[] colorTable, int transparentIndex) {
+		if (colorTable == null) {
+			return (IndexColorModel) new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_INDEXED).getColorModel();
+		}
+
+		int length = colorTable.length / 3;
+		int bitsPerPixel = length <= 4 ? length / 2 : (length <= 16 ? 4 : 8);
+		int size = 1 << bitsPerPixel;
+		byte[] reds = new byte[size];
+		byte[] greens = new byte[size];
+		byte[] blues = new byte[size];
+		for (int i = 0; i < length; i++) {
+			reds[i] = colorTable[3 * i];
+			greens[i] = colorTable[3 * i + 1];
+			blues[i] = colorTable[3 * i + 2];
+		}
+		return transparentIndex < 0 ? new IndexColorModel(bitsPerPixel, size, reds, greens, blues)
+				: new IndexColorModel(bitsPerPixel, size, reds, greens, blues, Math.min(transparentIndex, size - 1));
+	}
+
+	/**
+	 * Decodes the LZW codes into the pixel array. Pixels are left untouched if the codes end early
+	 * or are corrupt, and surplus codes are ignored.
+	 */
+	private static void decode(byte[] data, int minCodeSize, byte[] pixels) {
+		int clearCode = 1 << minCodeSize;
+		int endCode = clearCode + 1;
+
+		short[] prefixes = new short[MAX_CODES];
+		byte[] suffixes = new byte[MAX_CODES];
+		byte[] firsts = new byte[MAX_CODES];
+		short[] lengths = new short[MAX_CODES];
+		for (int code = 0; code < clearCode; code++) {
+			suffixes[code] = (byte) code;
+			firsts[code] = (byte) code;
+			lengths[code] = 1;
+		}
+
+		int nextCode = clearCode + 2;
+		int codeSize = minCodeSize + 1;
+		int previous = -1;
+		long bits = 0;
+		int bitCount = 0;
+		int in = 0;
+		int out = 0;
+		while (out < pixels.length) {
+			while (bitCount < codeSize) {
+				if (in == data.length) {
+					return;
+				}
+				bits |= (data[in++] & 0xFFL) << bitCount;
+				bitCount += 8;
+			}
+			int code = (int) bits & ((1 << codeSize) - 1);
+			bits >>>= codeSize;
+			bitCount -= codeSize;
+
+			if (code == clearCode) {
+				nextCode = clearCode + 2;
+				codeSize = minCodeSize + 1;
+				previous = -1;
+				continue;
+			}
+			if (code == endCode || code > nextCode || (code == nextCode && previous < 0)) {
+				return;
+			}
+
+			if (previous >= 0 && nextCode < MAX_CODES) {
+				// The new string is the previous string followed by the first pixel of the current
+				// one, which for a code that isn't known yet is the first pixel of the previous one
+				prefixes[nextCode] = (short) previous;
+				firsts[nextCode] = firsts[previous];
+				suffixes[nextCode] = firsts[code];
+				lengths[nextCode] = (short) (lengths[previous] + 1);
+				nextCode++;
+				if (nextCode == 1 << codeSize && codeSize < MAX_CODE_SIZE) {
+					codeSize++;
+				}
+			}
+
+			// Strings are stored back to front, so the pixels are written from the end of the string
+			int length = lengths[code];
+			int stored = Math.min(length, pixels.length - out);
+			int current = code;
+			for (int i = length - 1; i >= stored; i--) {
+				current = prefixes[current];
+			}
+			for (int i = stored - 1; i >= 0; i--) {
+				pixels[out + i] = suffixes[current];
+				current = prefixes[current];
+			}
+			out += stored;
+			previous = code;
+		}
+	}
+
+	/**
+	 * Moves the rows from the order of the four interlacing passes to top to bottom order
+	 */
+	private static void deinterlace(byte[] rows, byte[] pixels, int width, int height) {
+		int row = 0;
+		for (int pass = 0; pass < INTERLACE_OFFSETS.length; pass++) {
+			for (int y = INTERLACE_OFFSETS[pass]; y < height; y += INTERLACE_STEPS[pass]) {
+				System.arraycopy(rows, row++ * width, pixels, y * width, width);
+			}
+		}
+	}
+
+	private void writeImage(BufferedImage image, List<byte[]> extensions, List<byte[]> trailingExtensions)
+			throws IOException {
+		IndexColorModel colorModel = (IndexColorModel) image.getColorModel();
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int transparentIndex = colorModel.getTransparentPixel();
+
+		// Like ImageIO, the color table is padded to a power of 2 with its first color
+		int colorTableBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(colorModel.getMapSize() - 1));
+		int colorTableSize = 1 << colorTableBits;
+		int[] rgbs = new int[colorTableSize];
+		colorModel.getRGBs(rgbs);
+		Arrays.fill(rgbs, colorModel.getMapSize(), colorTableSize, rgbs[0]);
+
+		buffer.put("GIF89a".getBytes(StandardCharsets.US_ASCII));
+		buffer.putShort((short) width);
+		buffer.putShort((short) height);
+		buffer.put((byte) (0x80 | 0x70 | (colorTableBits - 1)));
+		buffer.put((byte) 0); // Background color index
+		buffer.put((byte) 0); // Pixel aspect ratio
+		for (int rgb : rgbs) {
+			ensureRemaining(3);
+			buffer.put((byte) (rgb >> 16));
+			buffer.put((byte) (rgb >> 8));
+			buffer.put((byte) rgb);
+		}
+
+		boolean graphicControlWritten = false;
+		for (byte[] extension : extensions) {
+			byte[] block = extension;
+			if ((block[1] & 0xFF) == GRAPHIC_CONTROL_LABEL && block.length >= 7 && (block[2] & 0xFF) >= 4) {
+				block = block.clone();
+				block[3] = (byte) ((block[3] & ~0x01) | (transparentIndex < 0 ? 0 : 1));
+				block[6] = (byte) Math.max(0, transparentIndex);
+				graphicControlWritten = true;
+			}
+			put(block);
+		}
+		if (!graphicControlWritten && transparentIndex >= 0) {
+			put(new byte[] { EXTENSION_INTRODUCER, (byte) GRAPHIC_CONTROL_LABEL, 4, 0x01, 0, 0, (byte) transparentIndex, 0 });
+		}
+
+		ensureRemaining(11);
+		buffer.put((byte) IMAGE_SEPARATOR);
+		buffer.putShort((short) 0); // Left position
+		buffer.putShort((short) 0); // Top position
+		buffer.putShort((short) width);
+		buffer.putShort((short) height);
+		buffer.put((byte) 0); // No local color table, not interlaced
+
+		int minCodeSize = Math.max(2, colorTableBits);
+		buffer.put((byte) minCodeSize);
+		encode(((DataBufferByte) image.getRaster().getDataBuffer()).getData(), minCodeSize);
+
+		for (byte[] extension : trailingExtensions) {
+			put(extension);
+		}
+		ensureRemaining(1);
+		buffer.put((byte) TRAILER);
+		flush();
+	}
+
+	/**
+	 * Encodes the pixels with LZW and writes the codes in data sub-blocks. The string table maps
+	 * each string, given by the code of its prefix and its last pixel, to its code. Pixels that
+	 * don't fit the code size are truncated.
+	 */
+	private void encode(byte[] pixels, int minCodeSize)
+			throws IOException {
+		int clearCode = 1 << minCodeSize;
+		int endCode = clearCode + 1;
+		int pixelMask = clearCode - 1;
+
+		int[] keys = new int[HASH_SIZE];
+		short[] codes = new short[HASH_SIZE];
+		Arrays.fill(keys, -1);
+
+		int nextCode = clearCode + 2;
+		int codeSize = minCodeSize + 1;
+		writeCode(clearCode, codeSize);
+
+		int prefix = pixels[0] & pixelMask;
+		for (int i = 1; i < pixels.length; i++) {
+			int pixel = pixels[i] & pixelMask;
+			int key = (prefix << 8) | pixel;
+			int slot = (key * 0x9E3779B1) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(HASH_SIZE));
+			while (keys[slot] != key && keys[slot] != -1) {
+				slot = (slot + 1) & (HASH_SIZE - 1);
+			}
+			if (keys[slot] == key) {
+				prefix = codes[slot];
+				continue;
+			}
+
+			writeCode(prefix, codeSize);
+			if (nextCode == 1 << codeSize && codeSize < MAX_CODE_SIZE) {
+				codeSize++;
+			}
+			if (nextCode < MAX_CODES) {
+				keys[slot] = key;
+				codes[slot] = (short) nextCode++;
+			} else {
+				// The string table is full, start over with a new one
+				writeCode(clearCode, codeSize);
+				Arrays.fill(keys, -1);
+				nextCode = clearCode + 2;
+				codeSize = minCodeSize + 1;
+			}
+			prefix = pixel;
+		}
+
+		writeCode(prefix, codeSize);
+		if (nextCode == 1 << codeSize && codeSize < MAX_CODE_SIZE) {
+			codeSize++;
+		}
+		writeCode(endCode, codeSize);
+		if (bitCount > 0) {
+			writeDataByte((int) bits);
+		}
+		endSubBlock();
+		ensureRemaining(1);
+		buffer.put((byte) 0); // Block terminator
+	}
+
+	/**
+	 * Appends the code to the bit accumulator, least significant bit first, and moves the
+	 * completed bytes to the current data sub-block
+	 */
+	private void writeCode(int code, int codeSize)
+			throws IOException {
+		bits |= (long) code << bitCount;
+		bitCount += codeSize;
+		while (bitCount >= Byte.SIZE) {
+			writeDataByte((int) bits);
+			bits >>>= Byte.SIZE;
+			bitCount -= Byte.SIZE;
+		}
+	}
+
+	private void writeDataByte(int value)
+			throws IOException {
+		if (subBlockStart < 0) {
+			// Make room for a complete sub-block, so its length can be filled in at the end
+			ensureRemaining(MAX_SUB_BLOCK_LENGTH + 1);
+			subBlockStart = buffer.position();
+			buffer.put((byte) 0);
+		}
+		buffer.put((byte) value);
+		if (buffer.position() - subBlockStart == MAX_SUB_BLOCK_LENGTH + 1) {
+			endSubBlock();
+		}
+	}
+
+	private void endSubBlock() {
+		if (subBlockStart >= 0) {
+			buffer.put(subBlockStart, (byte) (buffer.position() - subBlockStart - 1));
+			subBlockStart = -1;
+		}
+	}
+
+	private void put(byte[] bytes)
+			throws IOException {
+		for (int offset = 0; offset < bytes.length;) {
+			ensureRemaining(1);
+			int length = Math.min(bytes.length - offset, buffer.remaining());
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	private void ensureRemaining(int length)
+			throws IOException {
+		if (buffer.remaining() < length) {
+			flush();
+		}
+	}
+
+	private void flush()
+			throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -6,19 +6,13 @@ import org.stegosuite.model.exception.SteganoImageException;
 import org.stegosuite.util.ColorDistance;
 import org.stegosuite.util.ColorUtils;
 
-import javax.imageio.*;
-import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.awt.image.IndexColorModel;
-import java.awt.image.WritableRaster;
+import java.awt.image.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
 
-import static java.util.stream.Collectors.toSet;
-
 public class GIFImage
 		extends ImageFormat {
 
@@ -26,34 +20,48 @@ public class GIFImage
 
 	public static final String FILE_EXTENSION = "gif";
 
-	private int[] pixels = null;
+	/**
+	 * Number of pixels referencing each index of the color table
+	 */
+	private int[] indexHistogram = null;
 
 	private List<Color> colorTable = null;
 
 	private Map<ColorDistance, List<Color>> sortedColorTables = new HashMap<>();
 
+	private Map<ColorDistance, double[]> distanceMatrices = new HashMap<>();
+
 	/**
-	 * Custom parameters for encoding GIF images
+	 * Extension blocks of the loaded file, which are written again when the image is saved
 	 */
-	private class GIFImageWriteParam
-			extends ImageWriteParam {
+	private List<byte[]> extensions = Collections.emptyList();
 
-		GIFImageWriteParam() {
-			super(null);
-			canWriteCompressed = true;
-			canWriteProgressive = true;
-			compressionTypes = new String[] { "LZW", "lzw" };
-			compressionType = compressionTypes[0];
-			// Disable interlacing to decrease file size
-			progressiveMode = ImageWriteParam.MODE_DISABLED;
-		}
+	/**
+	 * Extension blocks behind the image in the loaded file, e.g. comments or XMP data
+	 */
+	private List<byte[]> trailingExtensions = Collections.emptyList();
 
-		@Override
-		public void setCompressionMode(int mode) {
-			if (mode == MODE_DISABLED) {
-				throw new UnsupportedOperationException("MODE_DISABLED is not supported.");
-			}
-			super.setCompressionMode(mode);
+	/**
+	 * Loads the first image of a GIF file, together with the extension blocks around it
+	 */
+	@Override
+	public void load(File gifFile)
+			throws SteganoImageException {
+
+		LOG.info("Loading GIF image from {}", gifFile.getAbsolutePath());
+
+		file = gifFile;
+		try {
+			List<byte[]> extensionBlocks = new ArrayList<>();
+			List<byte[]> trailingExtensionBlocks = new ArrayList<>();
+			long startTime = System.nanoTime();
+			setBufferedImage(GIFCodec.read(gifFile, extensionBlocks, trailingExtensionBlocks));
+			extensions = Collections.unmodifiableList(extensionBlocks);
+			trailingExtensions = Collections.unmodifiableList(trailingExtensionBlocks);
+			LOG.debug("Decoded GIF image with {} extension blocks in {} ms",
+					extensions.size() + trailingExtensions.size(), (System.nanoTime() - startTime) / 1000000);
+		} catch (IOException e) {
+			throw new SteganoImageException(e.getMessage());
 		}
 	}
 
@@ -66,18 +74,10 @@ public class GIFImage
 
 		LOG.info("Saving GIF image to {}", gifFile.getAbsolutePath());
 
-		ImageTypeSpecifier type = ImageTypeSpecifier.createFromRenderedImage(image);
-		ImageWriter writer = ImageIO.getImageWriters(type, FILE_EXTENSION).next();
-
-		try (ImageOutputStream stream = ImageIO.createImageOutputStream(gifFile)) {
-			// gifFile.delete();
-			writer.setOutput(stream);
-			try {
-				writer.write(null, new IIOImage(image, null, null), new GIFImageWriteParam());
-			} finally {
-				writer.dispose();
-				stream.flush();
-			}
+		try {
+			long startTime = System.nanoTime();
+			GIFCodec.write(image, extensions, trailingExtensions, gifFile);
+			LOG.debug("Encoded GIF image in {} ms", (System.nanoTime() - startTime) / 1000000);
 		} catch (IOException e) {
 			throw new SteganoImageException(e.getMessage());
 		}
@@ -92,19 +92,54 @@ public class GIFImage
 	}
 
 	/**
-	 * Sets the internal BufferedImage instance
+	 * Sets the internal BufferedImage instance. Images that don't store one byte per pixel are
+	 * converted, so the color indices can be accessed directly.
 	 */
 	@Override
 	public void setBufferedImage(BufferedImage image) {
-		super.setBufferedImage(image);
-		pixels = null;
+		super.setBufferedImage(toByteIndexed(image));
+		indexHistogram = null;
 		colorTable = null;
 		sortedColorTables.clear();
+		distanceMatrices.clear();
+	}
+
+	/**
+	 * Returns the image itself if it stores the color index of each pixel in one byte, otherwise a
+	 * copy that does
+	 *
+	 * @param image
+	 * @return
+	 */
+	private static BufferedImage toByteIndexed(BufferedImage image) {
+		if (image == null || !(image.getColorModel() instanceof IndexColorModel)) {
+			return image;
+		}
+
+		WritableRaster raster = image.getRaster();
+		int width = raster.getWidth();
+		int height = raster.getHeight();
+		if (raster.getDataBuffer() instanceof DataBufferByte && raster.getSampleModel() instanceof ComponentSampleModel
+				&& raster.getParent() == null && raster.getDataBuffer().getOffset() == 0) {
+			ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+			if (raster.getNumBands() == 1 && sampleModel.getPixelStride() == 1
+					&& sampleModel.getScanlineStride() == width && sampleModel.getBandOffsets()[0] == 0) {
+				return image;
+			}
+		}
+
+		LOG.debug("Converting GIF image with {} bits per pixel to byte indices", image.getColorModel().getPixelSize());
+		WritableRaster byteRaster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width, height, 1, null);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			raster.getPixels(0, y, width, 1, row);
+			byteRaster.setPixels(0, y, width, 1, row);
+		}
+		return new BufferedImage(image.getColorModel(), byteRaster, image.isAlphaPremultiplied(), null);
 	}
 
 	/**
-	 * Returns up to 256 colors from the GIF color table. The black padding colors at the end of the
-	 * table are skipped.
+	 * Returns up to 256 colors from the GIF color table
 	 *
 	 * @return
 	 */
@@ -128,12 +163,8 @@ public class GIFImage
 				colorTable.add(new Color(reds[i] & 0xFF, greens[i] & 0xFF, blues[i] & 0xFF));
 			}
 
-			// Remove trailing blacks if they are unreferenced
-			Set<Integer> referencedColors = Arrays.stream(getPixels()).boxed().collect(toSet());
-			while (colorTable.size() > 1 && colorTable.get(colorTable.size() - 1).equals(Color.BLACK)
-					&& referencedColors.contains(colorTable.get(colorTable.size() - 1))) {
-				colorTable.remove(colorTable.size() - 1);
-			}
+			// Unreferenced black padding colors at the end of the table are kept. The sorted color
+			// table, and with it the pixels that carry the payload, depends on them.
 
 			LOG.debug("{} colors extracted from GIF color table in {} ms", colorTable.size(),
 					(System.nanoTime() - startTime) / 1000000);
@@ -157,6 +188,18 @@ public class GIFImage
 		return new ArrayList<>(sortedColorTables.get(colorDistance));
 	}
 
+	/**
+	 * Returns the distances between all colors of the current color table. The distance between
+	 * the colors at indices i and j is stored at {@code i * n + j}, where n is the size of the
+	 * color table. The returned array is shared and must not be modified.
+	 *
+	 * @param colorDistance
+	 * @return
+	 */
+	public double[] getDistanceMatrix(ColorDistance colorDistance) {
+		return distanceMatrices.computeIfAbsent(colorDistance, d -> d.getDistanceMatrix(getColorTable()));
+	}
+
 	/**
 	 * Overwrites the existing color table with a new color table.
 	 *
@@ -176,30 +219,51 @@ public class GIFImage
 			blues[i] = (byte) color.getBlue();
 		}
 
+		// The new color model shares the raster, so the indices of the pixels are kept
 		IndexColorModel colorModel = new IndexColorModel(8, table.size(), reds, greens, blues);
-		WritableRaster raster = colorModel.createCompatibleWritableRaster(getWidth(), getHeight());
-		raster.setPixels(0, 0, getWidth(), getHeight(), getPixels());
-		image = new BufferedImage(colorModel, raster, image.isAlphaPremultiplied(), null);
+		image = new BufferedImage(colorModel, image.getRaster(), image.isAlphaPremultiplied(), null);
 
+		indexHistogram = null;
 		colorTable = null;
 		sortedColorTables.clear();
+		distanceMatrices.clear();
 	}
 
 	/**
-	 * Returns an array of pixel references.
+	 * Returns the color index of each pixel in row-major order. The array is the storage of the
+	 * image itself, so modifications change the image. Call setIndices() after modifying it.
 	 *
 	 * @return
 	 */
-	public int[] getPixels() {
-		if (pixels == null) {
-			int w = getWidth();
-			int h = getHeight();
-
-			LOG.debug("Reading {} pixels from GIF file ({}x{})", w * h, w, h);
+	public byte[] getIndices() {
+		return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+	}
 
-			pixels = image.getRaster().getPixels(0, 0, w, h, (int[]) null);
+	/**
+	 * Overwrites the color indices of all pixels. If the array returned by getIndices() is passed,
+	 * nothing is copied and only the information derived from the indices is discarded.
+	 *
+	 * @param indices
+	 */
+	public void setIndices(byte[] indices) {
+		byte[] data = getIndices();
+		if (indices != data) {
+			System.arraycopy(indices, 0, data, 0, data.length);
 		}
+		indexHistogram = null;
+	}
 
+	/**
+	 * Returns a copy of the color index of each pixel
+	 *
+	 * @return
+	 */
+	public int[] getPixels() {
+		byte[] indices = getIndices();
+		int[] pixels = new int[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			pixels[i] = indices[i] & 0xFF;
+		}
 		return pixels;
 	}
 
@@ -209,14 +273,33 @@ public class GIFImage
 	 * @param newPixels
 	 */
 	public void setPixels(int[] newPixels) {
-		int w = getWidth();
-		int h = getHeight();
+		LOG.debug("Writing {} pixels to GIF file ({}x{})", newPixels.length, getWidth(), getHeight());
 
-		LOG.debug("Writing {} pixels to GIF file ({}x{})", w * h, w, h);
+		byte[] indices = getIndices();
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = (byte) newPixels[i];
+		}
+		indexHistogram = null;
+	}
 
-		image.getRaster().setPixels(0, 0, w, h, newPixels);
+	/**
+	 * Copies the extension blocks along with the image
+	 */
+	@Override
+	public ImageFormat clone(int imageType) {
+		GIFImage clonedImage = (GIFImage) super.clone(imageType);
+		clonedImage.extensions = extensions;
+		clonedImage.trailingExtensions = trailingExtensions;
+		return clonedImage;
+	}
 
-		pixels = null;
+	/**
+	 * The pixels of a GIF are all rewritten when its color table changes, so the copy doesn't
+	 * share them with this image
+	 */
+	@Override
+	public ImageFormat copyOnWrite() {
+		return clone();
 	}
 
 	/**
@@ -225,6 +308,50 @@ public class GIFImage
 	 * @return
 	 */
 	public Map<Color, Integer> getHistogram() {
-		return ColorUtils.getHistogram(getColorTable(), getPixels());
+		return ColorUtils.toColorHistogram(getColorTable(), getIndexHistogram());
+	}
+
+	/**
+	 * Returns the number of pixels referencing each index of the color table. The returned array
+	 * is shared and must not be modified.
+	 *
+	 * @return
+	 */
+	public int[] getIndexHistogram() {
+		if (indexHistogram == null) {
+			indexHistogram = ColorUtils.getIndexHistogram(getColorTable().size(), getIndices());
+		}
+		return indexHistogram;
+	}
+
+	/**
+	 * Returns the indices of the color table that are referenced by at least one pixel
+	 *
+	 * @return
+	 */
+	public BitSet getReferencedIndices() {
+		int[] histogram = getIndexHistogram();
+		BitSet referencedIndices = new BitSet(histogram.length);
+		for (int i = 0; i < histogram.length; i++) {
+			referencedIndices.set(i, histogram[i] > 0);
+		}
+		return referencedIndices;
+	}
+
+	/**
+	 * Returns the number of pixels referencing any of the flagged indices of the color table
+	 *
+	 * @param indices A flag for each index of the color table
+	 * @return
+	 */
+	public int getPixelCount(boolean[] indices) {
+		int[] histogram = getIndexHistogram();
+		int count = 0;
+		for (int i = 0; i < indices.length; i++) {
+			if (indices[i]) {
+				count += histogram[i];
+			}
+		}
+		return count;
 	}
 }
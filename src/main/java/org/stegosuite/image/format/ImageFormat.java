@@ -154,6 +154,20 @@ public abstract class ImageFormat {
 		return this.clone(image.getType());
 	}
 
+	/**
+	 * Creates a copy of the image that shares all pixels with this image until they are modified.
+	 * This image must not be modified while the copy is in use.
+	 *
+	 * @return
+	 */
+	public ImageFormat copyOnWrite() {
+		ImageFormat copy = newInstance(this.getClass());
+		// The image has already been converted when it was set, so setBufferedImage() is skipped
+		copy.image = ColorUtils.copyOnWriteBufferedImage(image);
+		copy.file = file;
+		return copy;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -1,14 +1,24 @@
 package org.stegosuite.image.format;
 
+import org.stegosuite.image.jpgtemp.james.JpegCoefficientPlane;
 import org.stegosuite.model.exception.SteganoImageException;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JPGImage
 		extends ImageFormat {
 
 	public static final String FILE_EXTENSION = "jpg";
 
+	/**
+	 * Quantized DCT coefficients of the image, by JPEG quality. Replaced instead of cleared when the
+	 * image changes, because copies share it.
+	 */
+	private Map<Integer, JpegCoefficientPlane> coefficientPlanes = new ConcurrentHashMap<>();
+
 	@Override
 	public String getFileExtension() {
 		return FILE_EXTENSION;
@@ -20,4 +30,31 @@ public class JPGImage
 		// temporally nothing because it's already done in embedding
 	}
 
+	@Override
+	public void setBufferedImage(BufferedImage image) {
+		super.setBufferedImage(image);
+		coefficientPlanes = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Returns the quantized DCT coefficients of the image at the specified quality. They are only
+	 * computed on the first call for each quality.
+	 *
+	 * @param quality 0 is worst, 100 is best
+	 * @return
+	 */
+	public JpegCoefficientPlane getCoefficientPlane(int quality) {
+		return coefficientPlanes.computeIfAbsent(quality, q -> new JpegCoefficientPlane(image, q));
+	}
+
+	/**
+	 * The copy has the same pixels, so the coefficient planes computed for either image are
+	 * shared with the other one
+	 */
+	@Override
+	public ImageFormat copyOnWrite() {
+		JPGImage copy = (JPGImage) super.copyOnWrite();
+		copy.coefficientPlanes = coefficientPlanes;
+		return copy;
+	}
 }
@@ -62,46 +62,42 @@ class DCT {
 
 	/*
 	 * This method preforms a DCT on a block of image data using the AAN method as implemented in
-	 * the IJG Jpeg-6a library.
+	 * the IJG Jpeg-6a library, and quantitizes the result rounded to the nearest integer. Blocks are
+	 * flat and stored row by row. Nothing is allocated, so blocks can be transformed in parallel as
+	 * long as each thread uses its own buffers.
 	 */
-	public double[][] forwardDCT(final float input[][]) {
-		final double output[][] = new double[this.N][this.N];
+	public void forwardDCT(final float input[], final double work[], final int output[], final int code) {
 		double tmp0, tmp1, tmp2, tmp3, tmp4, tmp5, tmp6, tmp7;
 		double tmp10, tmp11, tmp12, tmp13;
 		double z1, z2, z3, z4, z5, z11, z13;
 		int i;
-		int j;
 
 		// Subtracts 128 from the input values
-		for (i = 0; i < 8; i++) {
-			for (j = 0; j < 8; j++) {
-				output[i][j] = input[i][j] - 128.0;
-				// input[i][j] -= 128;
-
-			}
+		for (i = 0; i < 64; i++) {
+			work[i] = input[i] - 128.0;
 		}
 
-		for (i = 0; i < 8; i++) {
-			tmp0 = output[i][0] + output[i][7];
-			tmp7 = output[i][0] - output[i][7];
-			tmp1 = output[i][1] + output[i][6];
-			tmp6 = output[i][1] - output[i][6];
-			tmp2 = output[i][2] + output[i][5];
-			tmp5 = output[i][2] - output[i][5];
-			tmp3 = output[i][3] + output[i][4];
-			tmp4 = output[i][3] - output[i][4];
+		for (i = 0; i < 64; i += 8) {
+			tmp0 = work[i] + work[i + 7];
+			tmp7 = work[i] - work[i + 7];
+			tmp1 = work[i + 1] + work[i + 6];
+			tmp6 = work[i + 1] - work[i + 6];
+			tmp2 = work[i + 2] + work[i + 5];
+			tmp5 = work[i + 2] - work[i + 5];
+			tmp3 = work[i + 3] + work[i + 4];
+			tmp4 = work[i + 3] - work[i + 4];
 
 			tmp10 = tmp0 + tmp3;
 			tmp13 = tmp0 - tmp3;
 			tmp11 = tmp1 + tmp2;
 			tmp12 = tmp1 - tmp2;
 
-			output[i][0] = tmp10 + tmp11;
-			output[i][4] = tmp10 - tmp11;
+			work[i] = tmp10 + tmp11;
+			work[i + 4] = tmp10 - tmp11;
 
 			z1 = (tmp12 + tmp13) * 0.707106781;
-			output[i][2] = tmp13 + z1;
-			output[i][6] = tmp13 - z1;
+			work[i + 2] = tmp13 + z1;
+			work[i + 6] = tmp13 - z1;
 
 			tmp10 = tmp4 + tmp5;
 			tmp11 = tmp5 + tmp6;
@@ -115,33 +111,33 @@ class DCT {
 			z11 = tmp7 + z3;
 			z13 = tmp7 - z3;
 
-			output[i][5] = z13 + z2;
-			output[i][3] = z13 - z2;
-			output[i][1] = z11 + z4;
-			output[i][7] = z11 - z4;
+			work[i + 5] = z13 + z2;
+			work[i + 3] = z13 - z2;
+			work[i + 1] = z11 + z4;
+			work[i + 7] = z11 - z4;
 		}
 
 		for (i = 0; i < 8; i++) {
-			tmp0 = output[0][i] + output[7][i];
-			tmp7 = output[0][i] - output[7][i];
-			tmp1 = output[1][i] + output[6][i];
-			tmp6 = output[1][i] - output[6][i];
-			tmp2 = output[2][i] + output[5][i];
-			tmp5 = output[2][i] - output[5][i];
-			tmp3 = output[3][i] + output[4][i];
-			tmp4 = output[3][i] - output[4][i];
+			tmp0 = work[i] + work[56 + i];
+			tmp7 = work[i] - work[56 + i];
+			tmp1 = work[8 + i] + work[48 + i];
+			tmp6 = work[8 + i] - work[48 + i];
+			tmp2 = work[16 + i] + work[40 + i];
+			tmp5 = work[16 + i] - work[40 + i];
+			tmp3 = work[24 + i] + work[32 + i];
+			tmp4 = work[24 + i] - work[32 + i];
 
 			tmp10 = tmp0 + tmp3;
 			tmp13 = tmp0 - tmp3;
 			tmp11 = tmp1 + tmp2;
 			tmp12 = tmp1 - tmp2;
 
-			output[0][i] = tmp10 + tmp11;
-			output[4][i] = tmp10 - tmp11;
+			work[i] = tmp10 + tmp11;
+			work[32 + i] = tmp10 - tmp11;
 
 			z1 = (tmp12 + tmp13) * 0.707106781;
-			output[2][i] = tmp13 + z1;
-			output[6][i] = tmp13 - z1;
+			work[16 + i] = tmp13 + z1;
+			work[48 + i] = tmp13 - z1;
 
 			tmp10 = tmp4 + tmp5;
 			tmp11 = tmp5 + tmp6;
@@ -155,13 +151,16 @@ class DCT {
 			z11 = tmp7 + z3;
 			z13 = tmp7 - z3;
 
-			output[5][i] = z13 + z2;
-			output[3][i] = z13 - z2;
-			output[1][i] = z11 + z4;
-			output[7][i] = z11 - z4;
+			work[40 + i] = z13 + z2;
+			work[24 + i] = z13 - z2;
+			work[8 + i] = z11 + z4;
+			work[56 + i] = z11 - z4;
 		}
 
-		return output;
+		final double divisors[] = (double[]) this.Divisors[code];
+		for (i = 0; i < 64; i++) {
+			output[i] = (int) Math.round(work[i] * divisors[i]);
+		}
 	}
 
 	/*
@@ -426,27 +425,6 @@ class DCT {
 
 	}
 
-	/*
-	 * This method quantitizes data and rounds it to the nearest integer.
-	 */
-	public int[] quantizeBlock(final double inputData[][], final int code) {
-		final int outputData[] = new int[this.N * this.N];
-		int i, j;
-		int index;
-		index = 0;
-		for (i = 0; i < 8; i++) {
-			for (j = 0; j < 8; j++) {
-				// The second line results in significantly better compression.
-				outputData[index] = (int) Math.round(inputData[i][j] * ((double[]) this.Divisors[code])[index]);
-				// outputData[index] = (int)(((inputData[i][j] * (((double[])
-				// (Divisors[code]))[index])) + 16384.5) -16384);
-				index++;
-			}
-		}
-
-		return outputData;
-	}
-
 	/*
 	 * This is the method for quantizing a block DCT'ed with forwardDCTExtreme This method
 	 * quantitizes data and rounds it to the nearest integer.
@@ -14,29 +14,39 @@
 
 package org.stegosuite.image.jpgtemp.james;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.util.Vector;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 class Huffman {
 
-	int bufferPutBits, bufferPutBuffer;
+	/*
+	 * The bits that weren't written yet are the lowest bufferPutBits bits of bufferPutBuffer.
+	 * Complete bytes are stuffed and collected in outputBuffer, which is written to the channel
+	 * when it is full.
+	 */
+	long bufferPutBuffer;
 
-	public int ImageHeight;
+	int bufferPutBits;
 
-	public int ImageWidth;
+	final byte outputBuffer[] = new byte[1 << 16];
 
-	public int DC_matrix0[][];
+	int outputLength;
 
-	public int AC_matrix0[][];
+	public int ImageHeight;
+
+	public int ImageWidth;
 
-	public int DC_matrix1[][];
+	/*
+	 * The codes and their lengths in bits, indexed by table number and then by symbol
+	 */
+	public int DC_code[][] = new int[2][12];
 
-	public int AC_matrix1[][];
+	public int DC_size[][] = new int[2][12];
 
-	public Object DC_matrix[];
+	public int AC_code[][] = new int[2][256];
 
-	public Object AC_matrix[];
+	public int AC_size[][] = new int[2][256];
 
 	public int code;
 
@@ -78,9 +88,10 @@ class Huffman {
 			0xd6, 0xd7, 0xd8, 0xd9, 0xda, 0xe2, 0xe3, 0xe4, 0xe5, 0xe6, 0xe7, 0xe8, 0xe9, 0xea, 0xf2, 0xf3, 0xf4, 0xf5,
 			0xf6, 0xf7, 0xf8, 0xf9, 0xfa };
 
-	public Vector<int[]> bits;
+	public int[][] bits = { this.bitsDCluminance, this.bitsACluminance, this.bitsDCchrominance,
+			this.bitsACchrominance };
 
-	public Vector<int[]> val;
+	public int[][] val = { this.valDCluminance, this.valACluminance, this.valDCchrominance, this.valACchrominance };
 
 	/*
 	 * jpegNaturalOrder[i] is the natural-order position of the i'th element of zigzag order.
@@ -93,128 +104,119 @@ class Huffman {
 	 * The Huffman class constructor
 	 */
 	public Huffman(final int Width, final int Height) {
-
-		this.bits = new Vector<int[]>();
-		this.bits.addElement(this.bitsDCluminance);
-		this.bits.addElement(this.bitsACluminance);
-		this.bits.addElement(this.bitsDCchrominance);
-		this.bits.addElement(this.bitsACchrominance);
-		this.val = new Vector<int[]>();
-		this.val.addElement(this.valDCluminance);
-		this.val.addElement(this.valACluminance);
-		this.val.addElement(this.valDCchrominance);
-		this.val.addElement(this.valACchrominance);
 		initHuf();
 		this.ImageWidth = Width;
 		this.ImageHeight = Height;
 
 	}
 
-	void bufferIt(final BufferedOutputStream outStream, final int code, final int size) {
-		int PutBuffer = code;
-		int PutBits = this.bufferPutBits;
-
-		PutBuffer &= (1 << size) - 1;
-		PutBits += size;
-		PutBuffer <<= 24 - PutBits;
-		PutBuffer |= this.bufferPutBuffer;
+	void bufferIt(final WritableByteChannel outStream, final int code, final int size) {
+		this.bufferPutBuffer = this.bufferPutBuffer << size | code & (1L << size) - 1;
+		this.bufferPutBits += size;
+		if (this.bufferPutBits >= 32) {
+			this.bufferPutBits -= 32;
+			writeWord(outStream, (int) (this.bufferPutBuffer >>> this.bufferPutBits));
+		}
+	}
 
-		while (PutBits >= 8) {
-			final int c = PutBuffer >> 16 & 0xFF;
-			try {
-				outStream.write(c);
-			} catch (final IOException e) {
-				System.out.println("IO Error: " + e.getMessage());
-			}
-			if (c == 0xFF) {
-				try {
-					outStream.write(0);
-				} catch (final IOException e) {
-					System.out.println("IO Error: " + e.getMessage());
+	/*
+	 * Writes four bytes. A 0 is stuffed after each 0xFF.
+	 */
+	private void writeWord(final WritableByteChannel outStream, final int word) {
+		if (this.outputLength > this.outputBuffer.length - 8) {
+			writeOutput(outStream);
+		}
+		final byte buffer[] = this.outputBuffer;
+		int length = this.outputLength;
+		final int inverted = ~word;
+		if ((inverted - 0x01010101 & ~inverted & 0x80808080) == 0) {
+			// No byte is 0xFF
+			buffer[length++] = (byte) (word >>> 24);
+			buffer[length++] = (byte) (word >>> 16);
+			buffer[length++] = (byte) (word >>> 8);
+			buffer[length++] = (byte) word;
+		} else {
+			for (int shift = 24; shift >= 0; shift -= 8) {
+				final byte c = (byte) (word >>> shift);
+				buffer[length++] = c;
+				if (c == (byte) 0xFF) {
+					buffer[length++] = 0;
 				}
 			}
-			PutBuffer <<= 8;
-			PutBits -= 8;
 		}
-		this.bufferPutBuffer = PutBuffer;
-		this.bufferPutBits = PutBits;
+		this.outputLength = length;
+	}
 
+	private void writeOutput(final WritableByteChannel outStream) {
+		final ByteBuffer buffer = ByteBuffer.wrap(this.outputBuffer, 0, this.outputLength);
+		try {
+			while (buffer.hasRemaining()) {
+				outStream.write(buffer);
+			}
+		} catch (final IOException e) {
+			System.out.println("IO Error: " + e.getMessage());
+		}
+		this.outputLength = 0;
 	}
 
-	// Uses an integer long (32 bits) buffer to store the Huffman encoded bits
-	// and sends them to outStream by the byte.
+	// Uses a long (64 bits) buffer to store the Huffman encoded bits
+	// and sends them to outStream in blocks of bytes.
 
-	void flushBuffer(final BufferedOutputStream outStream) {
-		int PutBuffer = this.bufferPutBuffer;
+	void flushBuffer(final WritableByteChannel outStream) {
 		int PutBits = this.bufferPutBits;
+		if (this.outputLength > this.outputBuffer.length - 8) {
+			writeOutput(outStream);
+		}
 		while (PutBits >= 8) {
-			final int c = PutBuffer >> 16 & 0xFF;
-			try {
-				outStream.write(c);
-			} catch (final IOException e) {
-				System.out.println("IO Error: " + e.getMessage());
-			}
-			if (c == 0xFF) {
-				try {
-					outStream.write(0);
-				} catch (final IOException e) {
-					System.out.println("IO Error: " + e.getMessage());
-				}
-			}
-			PutBuffer <<= 8;
 			PutBits -= 8;
+			final byte c = (byte) (this.bufferPutBuffer >>> PutBits);
+			this.outputBuffer[this.outputLength++] = c;
+			if (c == (byte) 0xFF) {
+				this.outputBuffer[this.outputLength++] = 0;
+			}
 		}
 		if (PutBits > 0) {
-			final int c = PutBuffer >> 16 & 0xFF;
-			try {
-				outStream.write(c);
-			} catch (final IOException e) {
-				System.out.println("IO Error: " + e.getMessage());
-			}
+			// The remaining bits are padded with zeros
+			this.outputBuffer[this.outputLength++] = (byte) (this.bufferPutBuffer << 8 - PutBits);
 		}
+		this.bufferPutBuffer = 0;
+		this.bufferPutBits = 0;
+		writeOutput(outStream);
 	}
 
 	/**
 	 * HuffmanBlockEncoder run length encodes and Huffman encodes the quantized data.
 	 **/
 
-	public void HuffmanBlockEncoder(final BufferedOutputStream outStream, final int zigzag[], final int prec,
-			final int DCcode, final int ACcode) {
+	public void HuffmanBlockEncoder(final WritableByteChannel outStream, final int zigzag[], final int offset,
+			final int prec, final int DCcode, final int ACcode) {
 		int temp, temp2, nbits, k, r, i;
-
-		this.NumOfDCTables = 2;
-		this.NumOfACTables = 2;
+		final int ACcodes[] = this.AC_code[ACcode];
+		final int ACsizes[] = this.AC_size[ACcode];
 
 		// The DC portion
 
-		temp = temp2 = zigzag[0] - prec;
+		temp = temp2 = zigzag[offset] - prec;
 		if (temp < 0) {
 			temp = -temp;
 			temp2--;
 		}
-		nbits = 0;
-		while (temp != 0) {
-			nbits++;
-			temp >>= 1;
-		}
+		nbits = 32 - Integer.numberOfLeadingZeros(temp);
 		// if (nbits > 11) nbits = 11;
-		bufferIt(outStream, ((int[][]) this.DC_matrix[DCcode])[nbits][0], ((int[][]) this.DC_matrix[DCcode])[nbits][1]);
-		// The arguments in bufferIt are code and size.
-		if (nbits != 0) {
-			bufferIt(outStream, temp2, nbits);
-		}
+		// The arguments in bufferIt are code and size. The value bits follow the code.
+		bufferIt(outStream, this.DC_code[DCcode][nbits] << nbits | temp2 & (1 << nbits) - 1,
+				this.DC_size[DCcode][nbits] + nbits);
 
 		// The AC portion
 
 		r = 0;
 
 		for (k = 1; k < 64; k++) {
-			if ((temp = zigzag[jpegNaturalOrder[k]]) == 0) {
+			if ((temp = zigzag[offset + jpegNaturalOrder[k]]) == 0) {
 				r++;
 			} else {
 				while (r > 15) {
-					bufferIt(outStream, ((int[][]) this.AC_matrix[ACcode])[0xF0][0],
-							((int[][]) this.AC_matrix[ACcode])[0xF0][1]);
+					bufferIt(outStream, ACcodes[0xF0], ACsizes[0xF0]);
 					r -= 16;
 				}
 				temp2 = temp;
@@ -222,20 +224,16 @@ class Huffman {
 					temp = -temp;
 					temp2--;
 				}
-				nbits = 1;
-				while ((temp >>= 1) != 0) {
-					nbits++;
-				}
+				nbits = 32 - Integer.numberOfLeadingZeros(temp);
 				i = (r << 4) + nbits;
-				bufferIt(outStream, ((int[][]) this.AC_matrix[ACcode])[i][0], ((int[][]) this.AC_matrix[ACcode])[i][1]);
-				bufferIt(outStream, temp2, nbits);
+				bufferIt(outStream, ACcodes[i] << nbits | temp2 & (1 << nbits) - 1, ACsizes[i] + nbits);
 
 				r = 0;
 			}
 		}
 
 		if (r > 0) {
-			bufferIt(outStream, ((int[][]) this.AC_matrix[ACcode])[0][0], ((int[][]) this.AC_matrix[ACcode])[0][1]);
+			bufferIt(outStream, ACcodes[0], ACsizes[0]);
 		}
 
 	}
@@ -246,83 +244,23 @@ class Huffman {
 	 */
 
 	public void initHuf() {
-		this.DC_matrix0 = new int[12][2];
-		this.DC_matrix1 = new int[12][2];
-		this.AC_matrix0 = new int[255][2];
-		this.AC_matrix1 = new int[255][2];
-		this.DC_matrix = new Object[2];
-		this.AC_matrix = new Object[2];
+		initTable(this.bitsDCluminance, this.valDCluminance, this.DC_code[0], this.DC_size[0]);
+		initTable(this.bitsACluminance, this.valACluminance, this.AC_code[0], this.AC_size[0]);
+		initTable(this.bitsDCchrominance, this.valDCchrominance, this.DC_code[1], this.DC_size[1]);
+		initTable(this.bitsACchrominance, this.valACchrominance, this.AC_code[1], this.AC_size[1]);
+	}
+
+	/*
+	 * Generates the code and the number of bits for each value of a table
+	 */
+	private static void initTable(final int bits[], final int val[], final int codes[], final int sizes[]) {
 		int p, l, i, lastp, si, code;
 		final int[] huffsize = new int[257];
 		final int[] huffcode = new int[257];
 
-		/*
-		 * init of the DC values for the chrominance [][0] is the code [][1] is the number of bit
-		 */
-
-		p = 0;
-		for (l = 1; l <= 16; l++) {
-			for (i = 1; i <= this.bitsDCchrominance[l]; i++) {
-				huffsize[p++] = l;
-			}
-		}
-		huffsize[p] = 0;
-		lastp = p;
-
-		code = 0;
-		si = huffsize[0];
-		p = 0;
-		while (huffsize[p] != 0) {
-			while (huffsize[p] == si) {
-				huffcode[p++] = code;
-				code++;
-			}
-			code <<= 1;
-			si++;
-		}
-
-		for (p = 0; p < lastp; p++) {
-			this.DC_matrix1[this.valDCchrominance[p]][0] = huffcode[p];
-			this.DC_matrix1[this.valDCchrominance[p]][1] = huffsize[p];
-		}
-
-		/*
-		 * Init of the AC hufmann code for the chrominance matrix [][][0] is the code &
-		 * matrix[][][1] is the number of bit needed
-		 */
-
-		p = 0;
-		for (l = 1; l <= 16; l++) {
-			for (i = 1; i <= this.bitsACchrominance[l]; i++) {
-				huffsize[p++] = l;
-			}
-		}
-		huffsize[p] = 0;
-		lastp = p;
-
-		code = 0;
-		si = huffsize[0];
-		p = 0;
-		while (huffsize[p] != 0) {
-			while (huffsize[p] == si) {
-				huffcode[p++] = code;
-				code++;
-			}
-			code <<= 1;
-			si++;
-		}
-
-		for (p = 0; p < lastp; p++) {
-			this.AC_matrix1[this.valACchrominance[p]][0] = huffcode[p];
-			this.AC_matrix1[this.valACchrominance[p]][1] = huffsize[p];
-		}
-
-		/*
-		 * init of the DC values for the luminance [][0] is the code [][1] is the number of bit
-		 */
 		p = 0;
 		for (l = 1; l <= 16; l++) {
-			for (i = 1; i <= this.bitsDCluminance[l]; i++) {
+			for (i = 1; i <= bits[l]; i++) {
 				huffsize[p++] = l;
 			}
 		}
@@ -342,44 +280,9 @@ class Huffman {
 		}
 
 		for (p = 0; p < lastp; p++) {
-			this.DC_matrix0[this.valDCluminance[p]][0] = huffcode[p];
-			this.DC_matrix0[this.valDCluminance[p]][1] = huffsize[p];
-		}
-
-		/*
-		 * Init of the AC hufmann code for luminance matrix [][][0] is the code & matrix[][][1] is
-		 * the number of bit
-		 */
-
-		p = 0;
-		for (l = 1; l <= 16; l++) {
-			for (i = 1; i <= this.bitsACluminance[l]; i++) {
-				huffsize[p++] = l;
-			}
+			codes[val[p]] = huffcode[p];
+			sizes[val[p]] = huffsize[p];
 		}
-		huffsize[p] = 0;
-		lastp = p;
-
-		code = 0;
-		si = huffsize[0];
-		p = 0;
-		while (huffsize[p] != 0) {
-			while (huffsize[p] == si) {
-				huffcode[p++] = code;
-				code++;
-			}
-			code <<= 1;
-			si++;
-		}
-		for (int q = 0; q < lastp; q++) {
-			this.AC_matrix0[this.valACluminance[q]][0] = huffcode[q];
-			this.AC_matrix0[this.valACluminance[q]][1] = huffsize[q];
-		}
-
-		this.DC_matrix[0] = this.DC_matrix0;
-		this.DC_matrix[1] = this.DC_matrix1;
-		this.AC_matrix[0] = this.AC_matrix0;
-		this.AC_matrix[1] = this.AC_matrix1;
 	}
 
 }
@@ -0,0 +1,201 @@
+package org.stegosuite.image.jpgtemp.james;
+
+import java.awt.*;
+import java.util.stream.IntStream;
+
+/**
+ * The quantized DCT coefficients of an image at a certain JPEG quality. The coefficients are
+ * stored in the order they are encoded: MCU by MCU, and within each MCU component by component
+ * and block by block, 64 coefficients in natural order per block.
+ * <p>
+ * A plane is computed once and then only read. It is shared between capacity calculations and
+ * any number of encoders, which embed into a copy of the coefficients.
+ */
+public class JpegCoefficientPlane {
+
+	private final int quality;
+
+	private final JpegInfo info;
+
+	private final int minBlockWidth;
+
+	private final int minBlockHeight;
+
+	private final int[] coefficients;
+
+	private int zeroCount = 0;
+
+	private int oneCount = 0;
+
+	private int largeCount = 0;
+
+	/**
+	 * Runs the color conversion, DCT and quantization over the image
+	 *
+	 * @param image
+	 * @param quality 0 is worst, 100 is best
+	 */
+	public JpegCoefficientPlane(final Image image, final int quality) {
+		this.quality = quality;
+		this.info = new JpegInfo(image, null);
+
+		// This initial setting of minBlockWidth and minBlockHeight is done to ensure they start
+		// with values larger than will actually be the case.
+		int width = this.info.imageWidth % 8 != 0 ? (this.info.imageWidth / 8 + 1) * 8 : this.info.imageWidth;
+		int height = this.info.imageHeight % 8 != 0 ? (this.info.imageHeight / 8 + 1) * 8 : this.info.imageHeight;
+		int blocksPerMcu = 0;
+		for (int comp = 0; comp < this.info.NumberOfComponents; comp++) {
+			width = Math.min(width, this.info.BlockWidth[comp]);
+			height = Math.min(height, this.info.BlockHeight[comp]);
+			blocksPerMcu += this.info.HsampFactor[comp] * this.info.VsampFactor[comp];
+		}
+		this.minBlockWidth = width;
+		this.minBlockHeight = height;
+		this.coefficients = new int[width * height * blocksPerMcu * 64];
+
+		transform(new DCT(quality));
+		count();
+
+		// Only the coefficients are needed from now on
+		this.info.Components = null;
+	}
+
+	/**
+	 * Transforms the MCU rows in parallel. Each row has its own range of the coefficients, so the
+	 * result is the same as in sequential order.
+	 */
+	private void transform(final DCT dct) {
+		final int rowLength = this.coefficients.length / this.minBlockHeight;
+		IntStream.range(0, this.minBlockHeight).parallel().forEach(r -> transformRow(dct, r, r * rowLength));
+	}
+
+	private void transformRow(final DCT dct, final int r, int index) {
+		final float block[] = new float[64];
+		final double work[] = new double[64];
+		final int quantized[] = new int[64];
+		final int ypos = r * 8;
+		for (int c = 0; c < this.minBlockWidth; c++) {
+			final int xpos = c * 8;
+			for (int comp = 0; comp < this.info.NumberOfComponents; comp++) {
+				final float inputArray[][] = (float[][]) this.info.Components[comp];
+				final int vsamp = this.info.VsampFactor[comp];
+				final int hsamp = this.info.HsampFactor[comp];
+				final int maxRow = this.info.imageHeight / 2 * vsamp - 1;
+				final int maxColumn = this.info.imageWidth / 2 * hsamp - 1;
+				for (int i = 0; i < vsamp; i++) {
+					for (int j = 0; j < hsamp; j++) {
+						for (int a = 0; a < 8; a++) {
+							// westfeld - dirty line fixed, Jun 6 2000
+							final float inputRow[] = inputArray[Math.min(ypos * vsamp + i * 8 + a, maxRow)];
+							final int ib = xpos * hsamp + j * 8;
+							for (int b = 0; b < 8; b++) {
+								block[a * 8 + b] = inputRow[Math.min(ib + b, maxColumn)];
+							}
+						}
+						dct.forwardDCT(block, work, quantized, this.info.QtableNumber[comp]);
+						System.arraycopy(quantized, 0, this.coefficients, index, 64);
+						index += 64;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts the AC coefficients by their suitability for F5 embedding
+	 */
+	private void count() {
+		for (int i = 0; i < this.coefficients.length; i++) {
+			if (i % 64 == 0) {
+				continue;
+			}
+			if (this.coefficients[i] == 0) {
+				this.zeroCount++;
+			} else if (this.coefficients[i] == 1 || this.coefficients[i] == -1) {
+				this.oneCount++;
+			}
+		}
+		this.largeCount = this.coefficients.length - this.zeroCount - this.oneCount - this.coefficients.length / 64;
+	}
+
+	public int getQuality() {
+		return this.quality;
+	}
+
+	JpegInfo getInfo() {
+		return this.info;
+	}
+
+	/**
+	 * Number of MCUs per row
+	 */
+	public int getMinBlockWidth() {
+		return this.minBlockWidth;
+	}
+
+	/**
+	 * Number of MCU rows
+	 */
+	int getMinBlockHeight() {
+		return this.minBlockHeight;
+	}
+
+	/**
+	 * Returns the coefficients. The array is shared and must not be modified.
+	 *
+	 * @return
+	 */
+	int[] getCoefficients() {
+		return this.coefficients;
+	}
+
+	public int getCoefficientCount() {
+		return this.coefficients.length;
+	}
+
+	/**
+	 * Returns the number of AC coefficients that are 0
+	 *
+	 * @return
+	 */
+	public int getZeroCount() {
+		return this.zeroCount;
+	}
+
+	/**
+	 * Returns the number of AC coefficients that are 1 or -1
+	 *
+	 * @return
+	 */
+	public int getOneCount() {
+		return this.oneCount;
+	}
+
+	/**
+	 * Returns the number of AC coefficients whose absolute value is larger than 1
+	 *
+	 * @return
+	 */
+	public int getLargeCount() {
+		return this.largeCount;
+	}
+
+	/**
+	 * Returns the expected number of bits F5 can embed. About half of the coefficients that are 1
+	 * or -1 become 0 when they are changed, so the bit is embedded again.
+	 *
+	 * @return
+	 */
+	public int getExpectedCapacity() {
+		return this.largeCount + (int) (0.49 * this.oneCount);
+	}
+
+	/**
+	 * Returns the expected capacity in bytes
+	 *
+	 * @return
+	 */
+	public int getCapacity() {
+		return getExpectedCapacity() / 8;
+	}
+}
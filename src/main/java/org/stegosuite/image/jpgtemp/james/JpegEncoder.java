@@ -27,16 +27,19 @@ import org.stegosuite.ui.cli.CliParser;
 
 import java.awt.*;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.stream.IntStream;
 
 /**
  * JpegEncoder - The JPEG main program which performs a jpeg compression of an image.
  */
-@SuppressWarnings({ "unused", "serial" })
-public class JpegEncoder
-		extends Frame {
+@SuppressWarnings("unused")
+public class JpegEncoder {
 
 	private static final Logger LOG = LoggerFactory.getLogger(JpegEncoder.class);
 
@@ -48,6 +51,10 @@ public class JpegEncoder
 
 	JpegInfo JpegObj;
 
+	JpegCoefficientPlane plane;
+
+	String comment;
+
 	Huffman Huf;
 
 	DCT dct;
@@ -58,6 +65,8 @@ public class JpegEncoder
 
 	int code;
 
+	int restartInterval = 0;
+
 	public static int[] jpegNaturalOrder = { 0, 1, 8, 16, 9, 2, 3, 10, 17, 24, 32, 25, 18, 11, 4, 5, 12, 19, 26, 33, 40,
 			48, 41, 34, 27, 20, 13, 6, 7, 14, 21, 28, 35, 42, 49, 56, 57, 50, 43, 36, 29, 22, 15, 23, 30, 37, 44, 51,
 			58, 59, 52, 45, 38, 31, 39, 46, 53, 60, 61, 54, 47, 55, 62, 63, };
@@ -70,23 +79,34 @@ public class JpegEncoder
 	int n = 0;
 
 	public JpegEncoder(final Image image, final int quality, final OutputStream out, final String comment) {
-		final MediaTracker tracker = new MediaTracker(this);
-		tracker.addImage(image, 0);
-		try {
-			tracker.waitForID(0);
-		} catch (final InterruptedException e) {
-			// Got to do something?
-		}
 		/*
 		 * Quality of the image. 0 to 100 and from bad image quality, high compression to good image
 		 * quality low compression
 		 */
-		this.Quality = quality;
+		init(new JpegCoefficientPlane(image, quality), out, comment);
+	}
+
+	/**
+	 * Creates an encoder for coefficients that were already computed. The plane isn't modified,
+	 * so it can be shared with other encoders.
+	 *
+	 * @param plane
+	 * @param out
+	 * @param comment
+	 */
+	public JpegEncoder(final JpegCoefficientPlane plane, final OutputStream out, final String comment) {
+		init(plane, out, comment);
+	}
+
+	private void init(final JpegCoefficientPlane plane, final OutputStream out, final String comment) {
+		this.plane = plane;
+		this.Quality = plane.getQuality();
+		this.comment = comment;
 
 		/*
 		 * Getting picture information It takes the Width, Height and RGB scans of the image.
 		 */
-		this.JpegObj = new JpegInfo(image, comment);
+		this.JpegObj = plane.getInfo();
 
 		this.imageHeight = this.JpegObj.imageHeight;
 		this.imageWidth = this.JpegObj.imageWidth;
@@ -116,7 +136,27 @@ public class JpegEncoder
 		return this.Quality;
 	}
 
+	public int getRestartInterval() {
+		return this.restartInterval;
+	}
+
+	/**
+	 * Sets the number of MCUs between restart markers. The intervals are Huffman encoded in
+	 * parallel. 0, the default, writes no restart markers.
+	 *
+	 * @param restartInterval 0 to 65535
+	 */
+	public void setRestartInterval(final int restartInterval) {
+		if (restartInterval < 0 || restartInterval > 0xFFFF) {
+			throw new IllegalArgumentException("Restart interval out of range: " + restartInterval);
+		}
+		this.restartInterval = restartInterval;
+	}
+
 	public void setQuality(final int quality) {
+		this.plane = new JpegCoefficientPlane(this.JpegObj.imageobj, quality);
+		this.JpegObj = this.plane.getInfo();
+		this.Quality = quality;
 		this.dct = new DCT(quality);
 	}
 
@@ -132,152 +172,32 @@ public class JpegEncoder
 	}
 
 	public void WriteCompressedData(final BufferedOutputStream outStream) {
-		final int offset;
-		int i, j, r, c, a, b;
-		final int temp = 0;
-		int comp, xpos, ypos, xblockoffset, yblockoffset;
-		float inputArray[][];
-		final float dctArray1[][] = new float[8][8];
-		double dctArray2[][] = new double[8][8];
-		int dctArray3[] = new int[8 * 8];
+		int i, j;
 
 		/*
-		 * This method controls the compression of the image. Starting at the upper left of the
-		 * image, it compresses 8x8 blocks of data until the entire image has been compressed.
+		 * This method controls the compression of the image. The DCT and quantization were done
+		 * by the coefficient plane, starting at the upper left of the image in 8x8 blocks.
 		 */
 
-		final int lastDCvalue[] = new int[this.JpegObj.NumberOfComponents];
-		final int zeroArray[] = new int[64]; // initialized to hold all zeros
-		int Width = 0, Height = 0;
-		final int nothing = 0, not;
-		int MinBlockWidth, MinBlockHeight;
-		// This initial setting of MinBlockWidth and MinBlockHeight is done to
-		// ensure they start with values larger than will actually be the case.
-		MinBlockWidth = this.imageWidth % 8 != 0 ? (int) (Math.floor(this.imageWidth / 8.0) + 1) * 8 : this.imageWidth;
-		MinBlockHeight = this.imageHeight % 8 != 0 ? (int) (Math.floor(this.imageHeight / 8.0) + 1) * 8
-				: this.imageHeight;
-		for (comp = 0; comp < this.JpegObj.NumberOfComponents; comp++) {
-			MinBlockWidth = Math.min(MinBlockWidth, this.JpegObj.BlockWidth[comp]);
-			MinBlockHeight = Math.min(MinBlockHeight, this.JpegObj.BlockHeight[comp]);
-		}
-		xpos = 0;
+		final int MinBlockWidth = this.plane.getMinBlockWidth();
+		final int MinBlockHeight = this.plane.getMinBlockHeight();
 		// westfeld
-		// Before we enter these loops, we initialise the
-		// coeff for steganography here:
+		// For steganography, all dct coefficients are collected in coeff[] first. We do not
+		// encode any Huffman Blocks here (we'll do this later). The plane is shared, so the
+		// coefficients are embedded into a copy.
 		int shuffledIndex = 0;
-		int coeffCount = 0;
-		for (r = 0; r < MinBlockHeight; r++) {
-			for (c = 0; c < MinBlockWidth; c++) {
-				for (comp = 0; comp < this.JpegObj.NumberOfComponents; comp++) {
-					for (i = 0; i < this.JpegObj.VsampFactor[comp]; i++) {
-						for (j = 0; j < this.JpegObj.HsampFactor[comp]; j++) {
-							coeffCount += 64;
-						}
-					}
-				}
-			}
-		}
-		final int coeff[] = new int[coeffCount];
+		final int coeff[] = this.plane.getCoefficients().clone();
+		final int coeffCount = coeff.length;
 
-		//LOG.debug("DCT/quantisation starts");
 		LOG.debug(this.imageWidth + " x " + this.imageHeight);
-		for (r = 0; r < MinBlockHeight; r++) {
-			for (c = 0; c < MinBlockWidth; c++) {
-				xpos = c * 8;
-				ypos = r * 8;
-				for (comp = 0; comp < this.JpegObj.NumberOfComponents; comp++) {
-					Width = this.JpegObj.BlockWidth[comp];
-					Height = this.JpegObj.BlockHeight[comp];
-					inputArray = (float[][]) this.JpegObj.Components[comp];
-
-					for (i = 0; i < this.JpegObj.VsampFactor[comp]; i++) {
-						for (j = 0; j < this.JpegObj.HsampFactor[comp]; j++) {
-							xblockoffset = j * 8;
-							yblockoffset = i * 8;
-							for (a = 0; a < 8; a++) {
-								for (b = 0; b < 8; b++) {
-
-									// I believe this is where the dirty line at
-									// the bottom of the image is
-									// coming from. I need to do a check here to
-									// make sure I'm not reading past
-									// image data.
-									// This seems to not be a big issue right
-									// now. (04/04/98)
-
-									// westfeld - dirty line fixed, Jun 6 2000
-									int ia = ypos * this.JpegObj.VsampFactor[comp] + yblockoffset + a;
-									int ib = xpos * this.JpegObj.HsampFactor[comp] + xblockoffset + b;
-									if (this.imageHeight / 2 * this.JpegObj.VsampFactor[comp] <= ia) {
-										ia = this.imageHeight / 2 * this.JpegObj.VsampFactor[comp] - 1;
-									}
-									if (this.imageWidth / 2 * this.JpegObj.HsampFactor[comp] <= ib) {
-										ib = this.imageWidth / 2 * this.JpegObj.HsampFactor[comp] - 1;
-									}
-									// dctArray1[a][b] = inputArray[ypos +
-									// yblockoffset + a][xpos + xblockoffset +
-									// b];
-									dctArray1[a][b] = inputArray[ia][ib];
-								}
-							}
-							// The following code commented out because on some
-							// images this technique
-							// results in poor right and bottom borders.
-							// if ((!JpegObj.lastColumnIsDummy[comp] || c <
-							// Width - 1) && (!JpegObj.lastRowIsDummy[comp] || r
-							// < Height - 1)) {
-							dctArray2 = this.dct.forwardDCT(dctArray1);
-							dctArray3 = this.dct.quantizeBlock(dctArray2, this.JpegObj.QtableNumber[comp]);
-							// }
-							// else {
-							// zeroArray[0] = dctArray3[0];
-							// zeroArray[0] = lastDCvalue[comp];
-							// dctArray3 = zeroArray;
-							// }
-							// westfeld
-							// For steganography, all dct
-							// coefficients are collected in
-							// coeff[] first. We do not encode
-							// any Huffman Blocks here (we'll do
-							// this later).
-							System.arraycopy(dctArray3, 0, coeff, shuffledIndex, 64);
-							shuffledIndex += 64;
-
-						}
-					}
-				}
-			}
-		}
-//		LOG.debug("got " + coeffCount + " DCT AC/DC coefficients");
 		int _changed = 0;
 		int _embedded = 0;
 		int _examined = 0;
-		int _expected = 0;
-		int _one = 0;
-		int _large = 0;
+		final int _expected = this.plane.getExpectedCapacity();
+		final int _one = this.plane.getOneCount();
+		final int _large = this.plane.getLargeCount();
 		int _thrown = 0;
-		int _zero = 0;
-		for (i = 0; i < coeffCount; i++) {
-			if (i % 64 == 0) {
-				continue;
-			}
-			if (coeff[i] == 1) {
-				_one++;
-			}
-			if (coeff[i] == -1) {
-				_one++;
-			}
-			if (coeff[i] == 0) {
-				_zero++;
-			}
-		}
-		_large = coeffCount - _zero - _one - coeffCount / 64;
-		_expected = _large + (int) (0.49 * _one);
-		//
-		// System.out.println("zero="+_zero);
-//		LOG.debug("one=" + _one);
-//		LOG.debug("large=" + _large);
-		//
+		final int _zero = this.plane.getZeroCount();
 		LOG.debug("expected capacity: " + _expected + " bits");
 //		System.out.println("expected capacity with");
 		for (i = 1; i < 8; i++) {
@@ -548,24 +468,69 @@ public class JpegEncoder
 		}
 //		LOG.debug("Starting Huffman Encoding.");
 		// Do the Huffman Encoding now.
-		shuffledIndex = 0;
-		for (r = 0; r < MinBlockHeight; r++) {
-			for (c = 0; c < MinBlockWidth; c++) {
-				for (comp = 0; comp < this.JpegObj.NumberOfComponents; comp++) {
-					for (i = 0; i < this.JpegObj.VsampFactor[comp]; i++) {
-						for (j = 0; j < this.JpegObj.HsampFactor[comp]; j++) {
-							System.arraycopy(coeff, shuffledIndex, dctArray3, 0, 64);
-							this.Huf.HuffmanBlockEncoder(outStream, dctArray3, lastDCvalue[comp],
-									this.JpegObj.DCtableNumber[comp], this.JpegObj.ACtableNumber[comp]);
-							lastDCvalue[comp] = dctArray3[0];
-							shuffledIndex += 64;
-						}
-					}
+		final int mcuCount = MinBlockWidth * MinBlockHeight;
+		if (this.restartInterval > 0 && this.restartInterval < mcuCount) {
+			writeIntervals(outStream, coeff, mcuCount);
+		} else {
+			final WritableByteChannel channel = Channels.newChannel(outStream);
+			encodeMcus(this.Huf, channel, coeff, 0, mcuCount);
+			this.Huf.flushBuffer(channel);
+		}
+	}
+
+	/*
+	 * Encodes the restart intervals in parallel, each with its own Huffman encoder, and writes
+	 * them in order with a restart marker between each two.
+	 */
+	private void writeIntervals(final BufferedOutputStream outStream, final int coeff[], final int mcuCount) {
+		final int intervalCount = (mcuCount + this.restartInterval - 1) / this.restartInterval;
+		final byte intervals[][] = new byte[intervalCount][];
+		IntStream.range(0, intervalCount).parallel().forEach(k -> {
+			final ByteArrayOutputStream interval = new ByteArrayOutputStream();
+			final WritableByteChannel channel = Channels.newChannel(interval);
+			final Huffman huffman = new Huffman(this.imageWidth, this.imageHeight);
+			final int first = k * this.restartInterval;
+			encodeMcus(huffman, channel, coeff, first, Math.min(mcuCount, first + this.restartInterval));
+			huffman.flushBuffer(channel);
+			intervals[k] = interval.toByteArray();
+		});
+		try {
+			for (int k = 0; k < intervalCount; k++) {
+				if (k > 0) {
+					outStream.write(0xFF);
+					outStream.write(0xD0 + (k - 1) % 8);
 				}
+				outStream.write(intervals[k]);
 			}
+		} catch (final IOException e) {
+			System.out.println("IO Error: " + e.getMessage());
 		}
+	}
 
-		this.Huf.flushBuffer(outStream);
+	/*
+	 * Encodes the MCUs from first to last (exclusive). The DC values are predicted from the first
+	 * MCU on, as at the start of the scan or after a restart marker.
+	 */
+	private void encodeMcus(final Huffman huffman, final WritableByteChannel channel, final int coeff[],
+			final int first, final int last) {
+		final int lastDCvalue[] = new int[this.JpegObj.NumberOfComponents];
+		int blocksPerMcu = 0;
+		for (int comp = 0; comp < this.JpegObj.NumberOfComponents; comp++) {
+			blocksPerMcu += this.JpegObj.HsampFactor[comp] * this.JpegObj.VsampFactor[comp];
+		}
+		int index = first * blocksPerMcu * 64;
+		for (int mcu = first; mcu < last; mcu++) {
+			for (int comp = 0; comp < this.JpegObj.NumberOfComponents; comp++) {
+				for (int i = 0; i < this.JpegObj.VsampFactor[comp]; i++) {
+					for (int j = 0; j < this.JpegObj.HsampFactor[comp]; j++) {
+						huffman.HuffmanBlockEncoder(channel, coeff, index, lastDCvalue[comp],
+								this.JpegObj.DCtableNumber[comp], this.JpegObj.ACtableNumber[comp]);
+						lastDCvalue[comp] = coeff[index];
+						index += 64;
+					}
+				}
+			}
+		}
 	}
 
 	public void WriteEOI(final BufferedOutputStream out) {
@@ -603,22 +568,20 @@ public class JpegEncoder
 		JFIF[16] = (byte) 0x00;
 		JFIF[17] = (byte) 0x00;
 
-		if (this.JpegObj.getComment().equals("JPEG Encoder Copyright 1998, James R. Weeks and BioElectroMech.  ")) {
+		if ("JPEG Encoder Copyright 1998, James R. Weeks and BioElectroMech.  ".equals(this.comment)) {
 			JFIF[10] = (byte) 0x00; // 1.00
 		}
 		WriteArray(JFIF, out);
 
 		// Comment Header
-		String comment = new String();
-		comment = this.JpegObj.getComment();
-		length = comment.length();
+		length = this.comment == null ? 0 : this.comment.length();
 		if (length != 0) {
 			final byte COM[] = new byte[length + 4];
 			COM[0] = (byte) 0xFF;
 			COM[1] = (byte) 0xFE;
 			COM[2] = (byte) (length >> 8 & 0xFF);
 			COM[3] = (byte) (length & 0xFF);
-			java.lang.System.arraycopy(this.JpegObj.Comment.getBytes(), 0, COM, 4, this.JpegObj.Comment.length());
+			java.lang.System.arraycopy(this.comment.getBytes(), 0, COM, 4, this.comment.length());
 			WriteArray(COM, out);
 		}
 
@@ -671,16 +634,16 @@ public class JpegEncoder
 		DHT4[1] = (byte) 0xC4;
 		for (i = 0; i < 4; i++) {
 			bytes = 0;
-			DHT1[index++ - oldindex] = (byte) this.Huf.bits.elementAt(i)[0];
+			DHT1[index++ - oldindex] = (byte) this.Huf.bits[i][0];
 			for (j = 1; j < 17; j++) {
-				temp = this.Huf.bits.elementAt(i)[j];
+				temp = this.Huf.bits[i][j];
 				DHT1[index++ - oldindex] = (byte) temp;
 				bytes += temp;
 			}
 			intermediateindex = index;
 			DHT2 = new byte[bytes];
 			for (j = 0; j < bytes; j++) {
-				DHT2[index++ - intermediateindex] = (byte) this.Huf.val.elementAt(i)[j];
+				DHT2[index++ - intermediateindex] = (byte) this.Huf.val[i][j];
 			}
 			DHT3 = new byte[index];
 			java.lang.System.arraycopy(DHT4, 0, DHT3, 0, oldindex);
@@ -693,6 +656,13 @@ public class JpegEncoder
 		DHT4[3] = (byte) (index - 2 & 0xFF);
 		WriteArray(DHT4, out);
 
+		// The DRI header
+		if (this.restartInterval > 0) {
+			final byte DRI[] = { (byte) 0xFF, (byte) 0xDD, (byte) 0x00, (byte) 0x04,
+					(byte) (this.restartInterval >> 8 & 0xFF), (byte) (this.restartInterval & 0xFF) };
+			WriteArray(DRI, out);
+		}
+
 		// Start of Scan Header
 		final byte SOS[] = new byte[14];
 		SOS[0] = (byte) 0xFF;
@@ -724,153 +694,6 @@ public class JpegEncoder
 	 * returns capacity in bytes
 	 */
 	public int getCapacity() {
-		final int offset;
-		int i, j, r, c, a, b;
-		final int temp = 0;
-		int comp, xpos, ypos, xblockoffset, yblockoffset;
-		float inputArray[][];
-		final float dctArray1[][] = new float[8][8];
-		double dctArray2[][] = new double[8][8];
-		int dctArray3[] = new int[8 * 8];
-
-		/*
-		 * This method controls the compression of the image. Starting at the upper left of the
-		 * image, it compresses 8x8 blocks of data until the entire image has been compressed.
-		 */
-
-		final int lastDCvalue[] = new int[this.JpegObj.NumberOfComponents];
-		final int zeroArray[] = new int[64]; // initialized to hold all zeros
-		int Width = 0, Height = 0;
-		final int nothing = 0, not;
-		int MinBlockWidth, MinBlockHeight;
-		// This initial setting of MinBlockWidth and MinBlockHeight is done to
-		// ensure they start with values larger than will actually be the case.
-		MinBlockWidth = this.imageWidth % 8 != 0 ? (int) (Math.floor(this.imageWidth / 8.0) + 1) * 8 : this.imageWidth;
-		MinBlockHeight = this.imageHeight % 8 != 0 ? (int) (Math.floor(this.imageHeight / 8.0) + 1) * 8
-				: this.imageHeight;
-		for (comp = 0; comp < this.JpegObj.NumberOfComponents; comp++) {
-			MinBlockWidth = Math.min(MinBlockWidth, this.JpegObj.BlockWidth[comp]);
-			MinBlockHeight = Math.min(MinBlockHeight, this.JpegObj.BlockHeight[comp]);
-		}
-		xpos = 0;
-		// westfeld
-		// Before we enter these loops, we initialise the
-		// coeff for steganography here:
-		int shuffledIndex = 0;
-		int coeffCount = 0;
-		for (r = 0; r < MinBlockHeight; r++) {
-			for (c = 0; c < MinBlockWidth; c++) {
-				for (comp = 0; comp < this.JpegObj.NumberOfComponents; comp++) {
-					for (i = 0; i < this.JpegObj.VsampFactor[comp]; i++) {
-						for (j = 0; j < this.JpegObj.HsampFactor[comp]; j++) {
-							coeffCount += 64;
-						}
-					}
-				}
-			}
-		}
-		final int coeff[] = new int[coeffCount];
-
-//		LOG.debug("DCT/quantisation starts");
-//		LOG.debug(this.imageWidth + " x " + this.imageHeight);
-		for (r = 0; r < MinBlockHeight; r++) {
-			for (c = 0; c < MinBlockWidth; c++) {
-				xpos = c * 8;
-				ypos = r * 8;
-				for (comp = 0; comp < this.JpegObj.NumberOfComponents; comp++) {
-					Width = this.JpegObj.BlockWidth[comp];
-					Height = this.JpegObj.BlockHeight[comp];
-					inputArray = (float[][]) this.JpegObj.Components[comp];
-
-					for (i = 0; i < this.JpegObj.VsampFactor[comp]; i++) {
-						for (j = 0; j < this.JpegObj.HsampFactor[comp]; j++) {
-							xblockoffset = j * 8;
-							yblockoffset = i * 8;
-							for (a = 0; a < 8; a++) {
-								for (b = 0; b < 8; b++) {
-
-									// I believe this is where the dirty line at
-									// the bottom of the image is
-									// coming from. I need to do a check here to
-									// make sure I'm not reading past
-									// image data.
-									// This seems to not be a big issue right
-									// now. (04/04/98)
-
-									// westfeld - dirty line fixed, Jun 6 2000
-									int ia = ypos * this.JpegObj.VsampFactor[comp] + yblockoffset + a;
-									int ib = xpos * this.JpegObj.HsampFactor[comp] + xblockoffset + b;
-									if (this.imageHeight / 2 * this.JpegObj.VsampFactor[comp] <= ia) {
-										ia = this.imageHeight / 2 * this.JpegObj.VsampFactor[comp] - 1;
-									}
-									if (this.imageWidth / 2 * this.JpegObj.HsampFactor[comp] <= ib) {
-										ib = this.imageWidth / 2 * this.JpegObj.HsampFactor[comp] - 1;
-									}
-									// dctArray1[a][b] = inputArray[ypos +
-									// yblockoffset + a][xpos + xblockoffset +
-									// b];
-									dctArray1[a][b] = inputArray[ia][ib];
-								}
-							}
-							// The following code commented out because on some
-							// images this technique
-							// results in poor right and bottom borders.
-							// if ((!JpegObj.lastColumnIsDummy[comp] || c <
-							// Width - 1) && (!JpegObj.lastRowIsDummy[comp] || r
-							// < Height - 1)) {
-							dctArray2 = this.dct.forwardDCT(dctArray1);
-							dctArray3 = this.dct.quantizeBlock(dctArray2, this.JpegObj.QtableNumber[comp]);
-							// }
-							// else {
-							// zeroArray[0] = dctArray3[0];
-							// zeroArray[0] = lastDCvalue[comp];
-							// dctArray3 = zeroArray;
-							// }
-							// westfeld
-							// For steganography, all dct
-							// coefficients are collected in
-							// coeff[] first. We do not encode
-							// any Huffman Blocks here (we'll do
-							// this later).
-							System.arraycopy(dctArray3, 0, coeff, shuffledIndex, 64);
-							shuffledIndex += 64;
-
-						}
-					}
-				}
-			}
-		}
-//		LOG.debug("got " + coeffCount + " DCT AC/DC coefficients");
-		int _changed = 0;
-		int _embedded = 0;
-		int _examined = 0;
-		int _expected = 0;
-		int _one = 0;
-		int _large = 0;
-		int _thrown = 0;
-		int _zero = 0;
-		for (i = 0; i < coeffCount; i++) {
-			if (i % 64 == 0) {
-				continue;
-			}
-			if (coeff[i] == 1) {
-				_one++;
-			}
-			if (coeff[i] == -1) {
-				_one++;
-			}
-			if (coeff[i] == 0) {
-				_zero++;
-			}
-		}
-		_large = coeffCount - _zero - _one - coeffCount / 64;
-		_expected = _large + (int) (0.49 * _one);
-		//
-		// System.out.println("zero="+_zero);
-//		LOG.debug("one=" + _one);
-//		LOG.debug("large=" + _large);
-		//
-//		LOG.debug("expected capacity: " + _expected + " bits");
-		return (_expected / 8);
+		return this.plane.getCapacity();
 	}
 }
@@ -15,7 +15,14 @@
 package org.stegosuite.image.jpgtemp.james;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.awt.image.PixelGrabber;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.stream.IntStream;
 
 /**
  * JpegInfo - Given an image, sets default information about it and divides it into its constituant
@@ -23,6 +30,30 @@ import java.awt.image.PixelGrabber;
  */
 class JpegInfo {
 
+	/*
+	 * The products of the color conversion for every 8 bit value. They are summed in the same order
+	 * as the conversion formulas, so the results are exactly the same as computing them per pixel.
+	 */
+	private static final double[] Y_R = new double[256], Y_G = new double[256], Y_B = new double[256];
+
+	private static final double[] CB_R = new double[256], CB_G = new double[256], CB_B = new double[256];
+
+	private static final double[] CR_R = new double[256], CR_G = new double[256], CR_B = new double[256];
+
+	static {
+		for (int i = 0; i < 256; i++) {
+			Y_R[i] = 0.299 * i;
+			Y_G[i] = 0.587 * i;
+			Y_B[i] = 0.114 * i;
+			CB_R[i] = -0.16874 * i;
+			CB_G[i] = 0.33126 * i;
+			CB_B[i] = 0.5 * i;
+			CR_R[i] = 0.5 * i;
+			CR_G[i] = 0.41869 * i;
+			CR_B[i] = 0.08131 * i;
+		}
+	}
+
 	String Comment;
 
 	public Image imageobj;
@@ -81,38 +112,13 @@ class JpegInfo {
 		this.BlockWidth = new int[this.NumberOfComponents];
 		this.BlockHeight = new int[this.NumberOfComponents];
 		this.imageobj = image;
-		this.imageWidth = image.getWidth(null);
-		this.imageHeight = image.getHeight(null);
+		final BufferedImage source = toBufferedImage(image);
+		this.imageWidth = source.getWidth();
+		this.imageHeight = source.getHeight();
 		// Comment =
 		// "JPEG Encoder Copyright 1998, James R. Weeks and BioElectroMech. ";
 		this.Comment = comment;
-		getYCCArray();
-	}
-
-	float[][] DownSample(final float[][] C, final int comp) {
-		int inrow, incol;
-		int outrow, outcol;
-		float output[][];
-		float temp;
-		int bias;
-		inrow = 0;
-		incol = 0;
-		output = new float[this.compHeight[comp]][this.compWidth[comp]];
-		for (outrow = 0; outrow < this.compHeight[comp]; outrow++) {
-			bias = 1;
-			for (outcol = 0; outcol < this.compWidth[comp]; outcol++) {
-				// System.out.println("outcol="+outcol);
-				temp = C[inrow][incol++]; // 00
-				temp += C[inrow++][incol--]; // 01
-				temp += C[inrow][incol++]; // 10
-				temp += C[inrow--][incol++] + bias; // 11 -> 02
-				output[outrow][outcol] = temp / (float) 4.0;
-				bias ^= 3;
-			}
-			inrow += 2;
-			incol = 0;
-		}
-		return output;
+		getYCCArray(source);
 	}
 
 	public String getComment() {
@@ -120,22 +126,12 @@ class JpegInfo {
 	}
 
 	/*
-	 * This method creates and fills three arrays, Y, Cb, and Cr using the input image.
+	 * This method creates and fills three arrays, Y, Cb, and Cr using the input image. Cb and Cr
+	 * are downsampled with a simple box filter while the rows are converted, two rows at a time.
+	 * Samples outside of the image are 0.
 	 */
-
-	private void getYCCArray() {
-		final int values[] = new int[this.imageWidth * this.imageHeight];
-		int r, g, b, y, x;
-		// In order to minimize the chance that grabPixels will throw an
-		// exception
-		// it may be necessary to grab some pixels every few scanlines and
-		// process
-		// those before going for more. The time expense may be prohibitive.
-		// However, for a situation where memory overhead is a concern, this may
-		// be
-		// the only choice.
-		final PixelGrabber grabber = new PixelGrabber(this.imageobj.getSource(), 0, 0, this.imageWidth,
-				this.imageHeight, values, 0, this.imageWidth);
+	private void getYCCArray(final BufferedImage source) {
+		int y;
 		this.MaxHsampFactor = 1;
 		this.MaxVsampFactor = 1;
 		for (y = 0; y < this.NumberOfComponents; y++) {
@@ -160,6 +156,115 @@ class JpegInfo {
 			}
 			this.BlockHeight[y] = (int) Math.ceil(this.compHeight[y] / 8.0);
 		}
+
+		// Downsampling is hard coded to 2x2, as the sample factors are.
+		final float Y[][] = new float[this.compHeight[0]][this.compWidth[0]];
+		final float Cb[][] = new float[this.compHeight[1]][this.compWidth[1]];
+		final float Cr[][] = new float[this.compHeight[2]][this.compWidth[2]];
+		IntStream.range(0, this.compHeight[1]).parallel().forEach(outrow -> {
+			final int rgb[] = new int[this.imageWidth];
+			final float Cb1[][] = new float[2][this.compWidth[0]];
+			final float Cr1[][] = new float[2][this.compWidth[0]];
+			for (int i = 0; i < 2; i++) {
+				final int inrow = outrow * 2 + i;
+				if (inrow < this.imageHeight) {
+					getRGBRow(source, inrow, rgb);
+					convertRow(rgb, Y[inrow], Cb1[i], Cr1[i]);
+				}
+			}
+			DownSample(Cb1, Cb[outrow]);
+			DownSample(Cr1, Cr[outrow]);
+		});
+
+		this.Components[0] = Y;
+		this.Components[1] = Cb;
+		this.Components[2] = Cr;
+	}
+
+	private static void convertRow(final int rgb[], final float Y[], final float Cb[], final float Cr[]) {
+		for (int x = 0; x < rgb.length; x++) {
+			final int r = rgb[x] >> 16 & 0xff;
+			final int g = rgb[x] >> 8 & 0xff;
+			final int b = rgb[x] & 0xff;
+
+			// The following three lines are a more correct color conversion
+			// but
+			// the current conversion technique is sufficient and results in
+			// a higher
+			// compression rate.
+			// Y[y][x] = 16 + (float)(0.8588*(0.299 * (float)r + 0.587 *
+			// (float)g + 0.114 * (float)b ));
+			// Cb1[y][x] = 128 + (float)(0.8784*(-0.16874 * (float)r -
+			// 0.33126 * (float)g + 0.5 * (float)b));
+			// Cr1[y][x] = 128 + (float)(0.8784*(0.5 * (float)r - 0.41869 *
+			// (float)g - 0.08131 * (float)b));
+			Y[x] = (float) (Y_R[r] + Y_G[g] + Y_B[b]);
+			Cb[x] = 128 + (float) (CB_R[r] - CB_G[g] + CB_B[b]);
+			Cr[x] = 128 + (float) (CR_R[r] - CR_G[g] - CR_B[b]);
+		}
+	}
+
+	/*
+	 * Averages each 2x2 square of the two input rows, rounding up and down alternately.
+	 */
+	private static void DownSample(final float C[][], final float output[]) {
+		int bias = 1;
+		for (int outcol = 0; outcol < output.length; outcol++) {
+			final int incol = outcol * 2;
+			float temp = C[0][incol];
+			temp += C[0][incol + 1];
+			temp += C[1][incol];
+			temp += C[1][incol + 1] + bias;
+			output[outcol] = temp / (float) 4.0;
+			bias ^= 3;
+		}
+	}
+
+	/*
+	 * Reads a row of the image as RGB values. The usual layouts of decoded images are read directly
+	 * from their data buffers, all others through the color model.
+	 */
+	private static void getRGBRow(final BufferedImage image, final int y, final int rgb[]) {
+		final WritableRaster raster = image.getRaster();
+		final int width = rgb.length;
+		final int tx = raster.getSampleModelTranslateX();
+		final int ty = raster.getSampleModelTranslateY();
+		switch (image.getType()) {
+		case BufferedImage.TYPE_INT_RGB:
+		case BufferedImage.TYPE_INT_ARGB: {
+			final SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+			final DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+			System.arraycopy(buffer.getData(), buffer.getOffset() + model.getOffset(-tx, y - ty), rgb, 0, width);
+			break;
+		}
+		case BufferedImage.TYPE_3BYTE_BGR:
+		case BufferedImage.TYPE_4BYTE_ABGR: {
+			final ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+			final DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+			final byte data[] = buffer.getData();
+			final int bandOffsets[] = model.getBandOffsets();
+			final int pixelStride = model.getPixelStride();
+			int offset = buffer.getOffset() + (y - ty) * model.getScanlineStride() - tx * pixelStride;
+			for (int x = 0; x < width; x++, offset += pixelStride) {
+				rgb[x] = (data[offset + bandOffsets[0]] & 0xff) << 16 | (data[offset + bandOffsets[1]] & 0xff) << 8
+						| data[offset + bandOffsets[2]] & 0xff;
+			}
+			break;
+		}
+		default:
+			image.getRGB(0, y, width, 1, rgb, 0, width);
+		}
+	}
+
+	/*
+	 * Images that aren't buffered are grabbed into an RGB image. The grabber waits until the image
+	 * is loaded, so no component is needed to track it.
+	 */
+	private static BufferedImage toBufferedImage(final Image image) {
+		if (image instanceof BufferedImage) {
+			return (BufferedImage) image;
+		}
+		final PixelGrabber grabber = new PixelGrabber(image, 0, 0, -1, -1, true);
 		try {
 			if (grabber.grabPixels() != true) {
 				try {
@@ -169,48 +274,11 @@ class JpegInfo {
 			}
 		} catch (final InterruptedException e) {}
 		;
-		final float Y[][] = new float[this.compHeight[0]][this.compWidth[0]];
-		final float Cr1[][] = new float[this.compHeight[0]][this.compWidth[0]];
-		final float Cb1[][] = new float[this.compHeight[0]][this.compWidth[0]];
-		float Cb2[][] = new float[this.compHeight[1]][this.compWidth[1]];
-		float Cr2[][] = new float[this.compHeight[2]][this.compWidth[2]];
-		int index = 0;
-		for (y = 0; y < this.imageHeight; ++y) {
-			for (x = 0; x < this.imageWidth; ++x) {
-				r = values[index] >> 16 & 0xff;
-				g = values[index] >> 8 & 0xff;
-				b = values[index] & 0xff;
-
-				// The following three lines are a more correct color conversion
-				// but
-				// the current conversion technique is sufficient and results in
-				// a higher
-				// compression rate.
-				// Y[y][x] = 16 + (float)(0.8588*(0.299 * (float)r + 0.587 *
-				// (float)g + 0.114 * (float)b ));
-				// Cb1[y][x] = 128 + (float)(0.8784*(-0.16874 * (float)r -
-				// 0.33126 * (float)g + 0.5 * (float)b));
-				// Cr1[y][x] = 128 + (float)(0.8784*(0.5 * (float)r - 0.41869 *
-				// (float)g - 0.08131 * (float)b));
-				Y[y][x] = (float) (0.299 * r + 0.587 * g + 0.114 * b);
-				Cb1[y][x] = 128 + (float) (-0.16874 * r - 0.33126 * g + 0.5 * b);
-				Cr1[y][x] = 128 + (float) (0.5 * r - 0.41869 * g - 0.08131 * b);
-				index++;
-			}
-		}
-
-		// Need a way to set the H and V sample factors before allowing
-		// downsampling.
-		// For now (04/04/98) downsampling must be hard coded.
-		// Until a better downsampler is implemented, this will not be done.
-		// Downsampling is currently supported. The downsampling method here
-		// is a simple box filter.
-
-		this.Components[0] = Y;
-		Cb2 = DownSample(Cb1, 1);
-		this.Components[1] = Cb2;
-		Cr2 = DownSample(Cr1, 2);
-		this.Components[2] = Cr2;
+		final int width = grabber.getWidth();
+		final int height = grabber.getHeight();
+		final BufferedImage buffered = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		buffered.setRGB(0, 0, width, height, (int[]) grabber.getPixels(), 0, width);
+		return buffered;
 	}
 
 	public void setComment(final String comment) {
@@ -5,10 +5,11 @@ import org.slf4j.LoggerFactory;
 import org.stegosuite.image.embedding.jpg.JPGF5;
 import org.stegosuite.image.jpgtemp.net.f5.crypt.F5Random;
 import org.stegosuite.image.jpgtemp.net.f5.crypt.Permutation;
-import org.stegosuite.image.jpgtemp.net.f5.ortega.HuffmanDecode;
+import org.stegosuite.image.jpgtemp.net.f5.ortega.CoefficientDecoder;
 import org.stegosuite.model.exception.SteganoKeyException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 public class Extract {
 
@@ -34,9 +35,22 @@ public class Extract {
 			throws IOException, SteganoKeyException {
 		carrier = new byte[flength];
 		fis.read(carrier);
-		final HuffmanDecode hd = new HuffmanDecode(carrier);
+		extract(ByteBuffer.wrap(carrier), fos, password);
+	}
+
+	/**
+	 * Extracts the embedded data from a JPEG file
+	 *
+	 * @param carrier A ByteBuffer holding the file content
+	 * @param fos
+	 * @param password
+	 * @throws IOException
+	 * @throws SteganoKeyException
+	 */
+	public static void extract(final ByteBuffer carrier, final OutputStream fos, final String password)
+			throws IOException, SteganoKeyException {
 //		LOG.debug("Huffman decoding starts");
-		coeff = hd.decode();
+		coeff = new CoefficientDecoder(carrier).decode();
 //		LOG.debug("Permutation starts");
 		final F5Random random = new F5Random(password.getBytes());
 		final Permutation permutation = new Permutation(coeff.length, random);
@@ -0,0 +1,532 @@
+package org.stegosuite.image.jpgtemp.net.f5.ortega;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Decodes the quantized DCT coefficients of a baseline JPEG, like {@link HuffmanDecode#decode()}.
+ * The data is read from a ByteBuffer holding the file content. Huffman codes of up to
+ * {@value #LOOKAHEAD} bits are decoded with a single table lookup, longer codes bit by bit.
+ * <p>
+ * The coefficients are returned in the same order and number as by HuffmanDecode, block by block
+ * in zigzag order, so the F5 permutation over them is the same. This includes its quirks: the
+ * markers are found by scanning the bytes, the DC prediction of the first component is used for
+ * all components, and blocks are decoded until at most 2 bytes of the data are left.
+ * <p>
+ * If the scan has restart markers, the intervals between them are decoded in parallel. When the
+ * intervals don't end where HuffmanDecode would expect them to, the scan is decoded sequentially.
+ */
+public final class CoefficientDecoder {
+
+	private static final int LOOKAHEAD = 9;
+
+	private static final int APP0 = 0xE0;
+
+	private static final int APP15 = 0xEF;
+
+	private static final int SOF0 = 0xC0;
+
+	private static final int DHT = 0xC4;
+
+	private static final int DQT = 0xDB;
+
+	private static final int DRI = 0xDD;
+
+	private static final int SOS = 0xDA;
+
+	private static final int EOI = 0xD9;
+
+	private static final int RST0 = 0xD0;
+
+	private static final int RST7 = 0xD7;
+
+	private final ByteBuffer data;
+
+	private final int limit;
+
+	/**
+	 * Position of the next byte to read
+	 */
+	private int position;
+
+	// SOF0 parameters
+	private int X, Y, Nf;
+
+	private int[] H, V;
+
+	// DRI parameter
+	private int RI;
+
+	/*
+	 * The Huffman tables as read by HuffTable, indexed by table number * 2, plus 1 for AC tables
+	 */
+	private final int[][] HUFFVAL = new int[4][];
+
+	private final int[][] VALPTR = new int[4][];
+
+	private final int[][] MINCODE = new int[4][];
+
+	private final int[][] MAXCODE = new int[4][];
+
+	/*
+	 * The symbols of the codes of up to LOOKAHEAD bits, indexed by the next LOOKAHEAD bits: the
+	 * length of the code shifted left by 8 bits plus the symbol, or 0 for longer codes.
+	 */
+	private final int[][] lookup = new int[4][];
+
+	/**
+	 * Reads the headers up to the start of the scan
+	 *
+	 * @param data
+	 */
+	public CoefficientDecoder(final ByteBuffer data) {
+		this.data = data;
+		this.position = data.position();
+		this.limit = data.limit();
+		boolean cont = true;
+		while (cont && this.position < this.limit) {
+			if (255 == getByte()) {
+				final int marker = getByte();
+				switch (marker) {
+					case SOF0:
+						sof0();
+						break;
+					case DHT:
+						dht();
+						break;
+					case DQT:
+						// The quantization tables aren't needed. Only the first table is skipped,
+						// like in HuffmanDecode.
+						getInt();
+						if ((getByte() & 0x0f) < 4) {
+							this.position += 64;
+						}
+						break;
+					case EOI:
+					case SOS:
+						cont = false;
+						break;
+					case DRI:
+						getInt();
+						this.RI = getInt();
+						break;
+					default:
+						if (marker >= APP0 && marker <= APP15) {
+							this.position += Math.max(0, getInt() - 2);
+						}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decodes the scan
+	 *
+	 * @return The coefficients of each block in zigzag order
+	 */
+	public int[] decode() {
+		// Read in Scan Header information
+		getInt();
+		final int Ns = getByte();
+		final int[] Td = new int[Ns];
+		final int[] Ta = new int[Ns];
+		for (int lp = 0; lp < Ns; lp++) {
+			getByte();
+			Td[lp] = getByte();
+			Ta[lp] = Td[lp] & 0x0f;
+			Td[lp] >>= 4;
+		}
+		// Ss, Se, Ah and Al
+		this.position += 3;
+
+		int Hmax = 1, Vmax = 1, blocksPerMcu = 0;
+		for (int c = 0; c < this.Nf; c++) {
+			Hmax = Math.max(Hmax, this.H[c]);
+			Vmax = Math.max(Vmax, this.V[c]);
+			blocksPerMcu += this.H[c] * this.V[c];
+		}
+		if (blocksPerMcu == 0) {
+			// No baseline frame, e.g. a progressive JPEG. HuffmanDecode would loop forever.
+			return new int[0];
+		}
+		final int mcuCount = (this.X + 8 * Hmax - 1) / (8 * Hmax) * ((this.Y + 8 * Vmax - 1) / (8 * Vmax));
+		if (this.RI > 0 && mcuCount > this.RI) {
+			final int[] coeff = decodeIntervals(Td, Ta, mcuCount, blocksPerMcu);
+			if (coeff != null) {
+				return coeff;
+			}
+		}
+		return decodeSequential(Td, Ta, mcuCount * blocksPerMcu, blocksPerMcu);
+	}
+
+	private int[] decodeSequential(final int[] Td, final int[] Ta, final int blockCount, final int blocksPerMcu) {
+		final Scan scan = new Scan(this.position);
+		final int[] PRED = new int[this.Nf];
+		int[] coeff = new int[Math.max(1, blockCount) * 64];
+		int pos = 0;
+		int MCUCount = 0;
+		while (true) {
+			while (pos + blocksPerMcu * 64 > coeff.length) {
+				// There is more data than the frame size implies
+				coeff = Arrays.copyOf(coeff, coeff.length * 2);
+			}
+			pos = scan.decodeMCU(coeff, pos, PRED, Td, Ta);
+			MCUCount++;
+			if (MCUCount == this.RI) {
+				MCUCount = 0;
+				Arrays.fill(PRED, 0);
+				if (scan.restart()) {
+					break;
+				}
+			}
+			if (this.limit - scan.consumedPosition() <= 2) {
+				break;
+			}
+		}
+		return pos == coeff.length ? coeff : Arrays.copyOf(coeff, pos);
+	}
+
+	/*
+	 * Finds the restart markers and decodes the intervals between them in parallel. Returns null
+	 * if decodeSequential() would decode the scan differently, because there are more or less
+	 * markers than intervals, or an interval doesn't end where a marker or the data ends.
+	 */
+	private int[] decodeIntervals(final int[] Td, final int[] Ta, final int mcuCount, final int blocksPerMcu) {
+		final int intervalCount = (mcuCount + this.RI - 1) / this.RI;
+		final int[] starts = new int[intervalCount];
+		final int[] ends = new int[intervalCount];
+		starts[0] = this.position;
+		ends[intervalCount - 1] = this.limit;
+		int interval = 0;
+		for (int i = this.position; i < this.limit - 1; i++) {
+			if (byteAt(i) == 0xFF) {
+				final int marker = byteAt(i + 1);
+				if (marker == 0) {
+					i++;
+				} else if (marker >= RST0 && marker <= RST7) {
+					if (interval == intervalCount - 1) {
+						return null;
+					}
+					ends[interval++] = i;
+					starts[interval] = i + 2;
+					i++;
+				} else {
+					break;
+				}
+			}
+		}
+		if (interval != intervalCount - 1) {
+			return null;
+		}
+
+		final int[] coeff = new int[mcuCount * blocksPerMcu * 64];
+		final boolean decoded = IntStream.range(0, intervalCount).parallel().allMatch(k -> {
+			final int first = k * this.RI;
+			final int last = Math.min(mcuCount, first + this.RI);
+			try {
+				final Scan scan = new Scan(starts[k]);
+				final int[] PRED = new int[this.Nf];
+				int pos = first * blocksPerMcu * 64;
+				for (int mcu = first; mcu < last - 1; mcu++) {
+					pos = scan.decodeMCU(coeff, pos, PRED, Td, Ta);
+					if (this.limit - scan.consumedPosition() <= 2) {
+						return false;
+					}
+				}
+				scan.decodeMCU(coeff, pos, PRED, Td, Ta);
+				final int end = scan.consumedPosition();
+				if (k < intervalCount - 1) {
+					return end == ends[k] && this.limit - starts[k + 1] > 2;
+				}
+				// The last interval is followed by EOI, or ends the data if it is shorter
+				return last - first == this.RI ? byteAt(end + 1) == EOI : this.limit - end <= 2;
+			} catch (final RuntimeException e) {
+				return false;
+			}
+		});
+		return decoded ? coeff : null;
+	}
+
+	private static int EXTEND(int V, final int T) {
+		int Vt = 0x01 << T - 1;
+		if (V < Vt) {
+			Vt = (-1 << T) + 1;
+			V += Vt;
+		}
+		return V;
+	}
+
+	private int byteAt(final int index) {
+		return index < this.limit ? this.data.get(index) & 0xff : 0;
+	}
+
+	private int getByte() {
+		return byteAt(this.position++);
+	}
+
+	private int getInt() {
+		final int b = getByte();
+		return b << 8 | getByte();
+	}
+
+	private void sof0() {
+		getInt();
+		getByte();
+		this.Y = getInt();
+		this.X = getInt();
+		this.Nf = getByte();
+		this.H = new int[this.Nf];
+		this.V = new int[this.Nf];
+		for (int lp = 0; lp < this.Nf; lp++) {
+			getByte();
+			this.H[lp] = getByte();
+			this.V[lp] = this.H[lp] & 0x0f;
+			this.H[lp] >>= 4;
+			getByte();
+		}
+	}
+
+	private void dht() {
+		int Lh = getInt();
+		while (Lh > 0) {
+			int Tc = getByte();
+			final int Th = Tc & 0x0f;
+			Tc >>= 4;
+			final int table = (Th == 0 ? 0 : 2) + (Tc == 0 ? 0 : 1);
+			Lh -= readTable(table);
+		}
+	}
+
+	/*
+	 * Reads a table and generates the decoder tables like HuffTable
+	 *
+	 * @return The length of the table as computed by HuffTable
+	 */
+	private int readTable(final int table) {
+		final int[] BITS = new int[17];
+		final int[] HUFFVAL = new int[256];
+		final int[] MINCODE = new int[17];
+		final int[] MAXCODE = new int[18];
+		final int[] VALPTR = new int[17];
+		int count = 0;
+		for (int l = 1; l < 17; l++) {
+			BITS[l] = getByte();
+			count += BITS[l];
+		}
+		for (int x = 0; x < count; x++) {
+			HUFFVAL[x] = getByte();
+		}
+
+		// Generates the code of each value, Flow Charts C.1 and C.2
+		final int[] HUFFCODE = new int[count + 1];
+		int code = 0;
+		int k = 0;
+		for (int l = 1; l < 17; l++) {
+			for (int j = 0; j < BITS[l] && k < count; j++) {
+				HUFFCODE[k++] = code++;
+			}
+			code <<= 1;
+		}
+
+		// Generates the decoder tables, Flow Chart F.15
+		int j = 0;
+		for (int l = 1; l < 17; l++) {
+			if (BITS[l] == 0) {
+				MAXCODE[l] = -1;
+			} else {
+				VALPTR[l] = j;
+				MINCODE[l] = HUFFCODE[j];
+				j = j + BITS[l] - 1;
+				MAXCODE[l] = HUFFCODE[j++];
+			}
+		}
+
+		this.HUFFVAL[table] = HUFFVAL;
+		this.VALPTR[table] = VALPTR;
+		this.MINCODE[table] = MINCODE;
+		this.MAXCODE[table] = MAXCODE;
+		this.lookup[table] = createLookup(HUFFVAL, VALPTR, MINCODE, MAXCODE);
+		return 19 + count;
+	}
+
+	/*
+	 * Decodes each combination of LOOKAHEAD bits like HuffmanDecode.DECODE() would. Codes that are
+	 * longer or point outside of the table are left to the slow path.
+	 */
+	private static int[] createLookup(final int[] HUFFVAL, final int[] VALPTR, final int[] MINCODE,
+			final int[] MAXCODE) {
+		final int[] lookup = new int[1 << LOOKAHEAD];
+		for (int bits = 0; bits < lookup.length; bits++) {
+			int I = 1;
+			int CD = bits >> LOOKAHEAD - 1;
+			while (I < LOOKAHEAD && CD > MAXCODE[I]) {
+				I++;
+				CD = bits >> LOOKAHEAD - I;
+			}
+			if (CD <= MAXCODE[I]) {
+				final int J = VALPTR[I] + CD - MINCODE[I];
+				if (J >= 0 && J < HUFFVAL.length) {
+					lookup[bits] = I << 8 | HUFFVAL[J];
+				}
+			}
+		}
+		return lookup;
+	}
+
+	/*
+	 * Reads the entropy coded data from a position on. The bits not consumed yet are the lowest
+	 * bitCount bits of bitBuffer. The bytes in it were read ahead, so the positions after the last
+	 * bytes loaded are remembered to find the position after the last byte consumed.
+	 */
+	private final class Scan {
+
+		private int position;
+
+		private int start;
+
+		private long bitBuffer;
+
+		private int bitCount;
+
+		private final int[] loadedEnds = new int[16];
+
+		private int loadedCount;
+
+		Scan(final int start) {
+			this.position = start;
+			this.start = start;
+		}
+
+		/*
+		 * Decodes the blocks of an MCU
+		 *
+		 * @return The position after the blocks
+		 */
+		int decodeMCU(final int[] coeff, int pos, final int[] PRED, final int[] Td, final int[] Ta) {
+			for (int nComponent = 0; nComponent < CoefficientDecoder.this.Nf; nComponent++) {
+				final int DCtable = Td[nComponent] * 2;
+				final int ACtable = Ta[nComponent] * 2 + 1;
+				final int blocks = CoefficientDecoder.this.H[nComponent] * CoefficientDecoder.this.V[nComponent];
+				for (int cnt = 0; cnt < blocks; cnt++) {
+					final int SSSS = decodeSymbol(DCtable);
+					coeff[pos] = PRED[0] + EXTEND(receive(SSSS), SSSS);
+					PRED[nComponent] = coeff[pos];
+					decodeAC(ACtable, coeff, pos);
+					pos += 64;
+				}
+			}
+			return pos;
+		}
+
+		/*
+		 * Skips the rest of the current byte and reads the restart marker
+		 *
+		 * @return Whether the marker is EOI
+		 */
+		boolean restart() {
+			this.position = consumedPosition();
+			this.bitBuffer = 0;
+			this.bitCount = 0;
+			this.loadedCount = 0;
+			this.position++;
+			final boolean end = byteAt(this.position++) == EOI;
+			this.start = this.position;
+			return end;
+		}
+
+		/*
+		 * Returns the position after the last byte of which bits were consumed
+		 */
+		int consumedPosition() {
+			final int consumed = this.loadedCount - (this.bitCount >> 3);
+			return consumed == 0 ? this.start : this.loadedEnds[consumed - 1 & 15];
+		}
+
+		private void decodeAC(final int table, final int[] coeff, final int offset) {
+			int K = 1;
+			while (true) {
+				final int RS = decodeSymbol(table);
+				final int SSSS = RS & 0x0f;
+				final int R = RS >> 4;
+				if (SSSS == 0) {
+					if (R == 15) {
+						K += 16;
+						continue;
+					}
+					return;
+				}
+				K += R;
+				if (K > 63) {
+					throw new ArrayIndexOutOfBoundsException(K);
+				}
+				coeff[offset + K] = EXTEND(receive(SSSS), SSSS);
+				if (K == 63) {
+					return;
+				}
+				K++;
+			}
+		}
+
+		private int decodeSymbol(final int table) {
+			if (this.bitCount < LOOKAHEAD) {
+				fill();
+			}
+			final int entry = CoefficientDecoder.this.lookup[table][(int) (this.bitBuffer >>> this.bitCount
+					- LOOKAHEAD) & (1 << LOOKAHEAD) - 1];
+			if (entry != 0) {
+				this.bitCount -= entry >> 8;
+				return entry & 0xff;
+			}
+
+			// Long codes are decoded like in HuffmanDecode.DECODE()
+			final int[] maxcode = CoefficientDecoder.this.MAXCODE[table];
+			int CD = nextBit();
+			int I = 1;
+			while (CD > maxcode[I]) {
+				CD = (CD << 1) + nextBit();
+				I++;
+			}
+			return CoefficientDecoder.this.HUFFVAL[table][CoefficientDecoder.this.VALPTR[table][I] + CD
+					- CoefficientDecoder.this.MINCODE[table][I]];
+		}
+
+		private int nextBit() {
+			if (this.bitCount == 0) {
+				fill();
+			}
+			return (int) (this.bitBuffer >>> --this.bitCount) & 1;
+		}
+
+		private int receive(final int SSS) {
+			// Reads at most 16 bits at a time, so the result is the same as reading bit by bit
+			int V = 0;
+			for (int remaining = SSS; remaining > 0;) {
+				final int n = Math.min(16, remaining);
+				if (this.bitCount < n) {
+					fill();
+				}
+				this.bitCount -= n;
+				V = (V << n) + ((int) (this.bitBuffer >>> this.bitCount) & (1 << n) - 1);
+				remaining -= n;
+			}
+			return V;
+		}
+
+		/*
+		 * Loads whole bytes into the bit buffer. Each 0xFF byte is followed by a stuffed byte,
+		 * which is skipped. Past the end of the data, zeros are read.
+		 */
+		private void fill() {
+			while (this.bitCount <= 56) {
+				final int b = byteAt(this.position++);
+				if (b == 0xFF) {
+					this.position++;
+				}
+				this.bitBuffer = this.bitBuffer << 8 | b;
+				this.bitCount += 8;
+				this.loadedEnds[this.loadedCount++ & 15] = this.position;
+			}
+		}
+	}
+}
@@ -40,6 +40,10 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.Date;
 
+/**
+ * Reference implementation only. Extraction decodes with {@link CoefficientDecoder}, whose output
+ * is tested against this class, so changes to how coefficients are decoded must be made in both.
+ */
 @SuppressWarnings("unused")
 public class HuffmanDecode {
 
@@ -6,7 +6,6 @@ import org.stegosuite.model.payload.block.Block;
 import org.stegosuite.util.ByteUtils;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -18,12 +17,6 @@ public class Payload {
 
 	private static final Logger LOG = LoggerFactory.getLogger(Payload.class);
 
-	/**
-	 * The way processed bits are embedded and extracted, should be either ByteOrder.LITTLE_ENDIAN
-	 * if LSB is at index 0, or ByteOrder.BIG_ENDIAN if LSB is at index 7
-	 */
-	public static final ByteOrder BYTE_ORDER = ByteOrder.BIG_ENDIAN;
-
 	/**
 	 * The number bytes that contain the payload size. Valid values: 1 = 256 bytes total payload
 	 * length; 2 = 64 KB total payload length; 3 = 16MB total payload length; 4 = 4 GB total payload
@@ -3,6 +3,7 @@ package org.stegosuite.model.payload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.stegosuite.model.exception.SteganoEmbedException;
+import org.stegosuite.util.BitReader;
 import org.stegosuite.util.ByteUtils;
 import org.stegosuite.util.CompressionUtils;
 import org.stegosuite.util.CryptoUtils;
@@ -81,12 +82,12 @@ public class PayloadEmbedder {
 	}
 
 	/**
-	 * Returns in Iterable that yields all bits of the serialized payload
+	 * Returns a reader over all bits of the serialized payload
 	 *
 	 * @return
 	 */
-	public Iterable<Byte> iteratePayloadBits() {
-		return ByteUtils.iterateBits(data, Payload.BYTE_ORDER);
+	public BitReader getPayloadBits() {
+		return new BitReader(data);
 	}
 
 	/**
@@ -5,7 +5,6 @@ import org.slf4j.LoggerFactory;
 import org.stegosuite.model.exception.SteganoEncryptionException;
 import org.stegosuite.model.exception.SteganoExtractException;
 import org.stegosuite.model.exception.SteganoKeyException;
-import org.stegosuite.util.ByteUtils;
 import org.stegosuite.util.CompressionUtils;
 import org.stegosuite.util.CryptoUtils;
 
@@ -43,14 +42,14 @@ public class PayloadExtractor {
 	private int dataSizePos = 4 - Payload.LENGTH_NUM_BYTES;
 
 	/**
-	 * Buffer that holds the bits
+	 * The bits of the byte currently being assembled
 	 */
-	private byte[] bits = new byte[8];
+	private int currentByte = 0;
 
 	/**
-	 * Current position of the bit
+	 * Number of bits of the byte currently being assembled
 	 */
-	private int dataSizeBitPos = 0;
+	private int currentBitCount = 0;
 
 	/**
 	 * Current position of the data array
@@ -124,7 +123,7 @@ public class PayloadExtractor {
 			return;
 		}
 
-		if (dataSizeBitPos != 0) {
+		if (currentBitCount != 0) {
 			throw new SteganoExtractException("Cannot process byte while processing bits");
 		}
 
@@ -154,22 +153,72 @@ public class PayloadExtractor {
 	}
 
 	/**
-	 * Processes the bits extracted from a steganogram and stores them in the internal buffer
+	 * Processes length bytes of bytes starting at offset. Bytes after the end of the payload are
+	 * ignored.
 	 *
-	 * @param bit
+	 * @param bytes
+	 * @param offset
+	 * @param length
 	 * @throws SteganoExtractException
 	 */
-	public void processBit(byte bit)
+	public void processBytes(byte[] bytes, int offset, int length)
 			throws SteganoExtractException {
 
+		// Process the payload length byte by byte, then copy the data in bulk
+		int end = offset + length;
+		while (offset < end && payloadLength == null) {
+			processByte(bytes[offset++]);
+		}
+
 		if (finished()) {
 			return;
 		}
 
-		bits[dataSizeBitPos] = bit;
+		if (currentBitCount != 0) {
+			throw new SteganoExtractException("Cannot process byte while processing bits");
+		}
+
+		int count = Math.min(end - offset, data.length - dataPos);
+		System.arraycopy(bytes, offset, data, dataPos, count);
+		dataPos += count;
+	}
+
+	/**
+	 * Processes the bits extracted from a steganogram and stores them in the internal buffer
+	 *
+	 * @param bit
+	 * @throws SteganoExtractException
+	 */
+	public void processBit(byte bit)
+			throws SteganoExtractException {
+		processBits(bit, 1);
+	}
+
+	/**
+	 * Processes count bits extracted from a steganogram, MSB of each byte first. Bits after the end
+	 * of the payload are ignored.
+	 *
+	 * @param bits the bits, the first one in bit count - 1
+	 * @param count number of bits to process, 0 to 64
+	 * @throws SteganoExtractException
+	 */
+	public void processBits(long bits, int count)
+			throws SteganoExtractException {
 
-		if ((dataSizeBitPos = ++dataSizeBitPos % 8) == 0) {
-			processByte(ByteUtils.bitsToByte(bits, Payload.BYTE_ORDER));
+		int remaining = count;
+		while (remaining > 0 && !finished()) {
+			// Take as many bits as needed to complete the current byte
+			int n = Math.min(8 - currentBitCount, remaining);
+			remaining -= n;
+			currentByte = (currentByte << n) | (int) ((bits >>> remaining) & ((1 << n) - 1));
+			currentBitCount += n;
+
+			if (currentBitCount == 8) {
+				byte b = (byte) currentByte;
+				currentByte = 0;
+				currentBitCount = 0;
+				processByte(b);
+			}
 		}
 	}
 
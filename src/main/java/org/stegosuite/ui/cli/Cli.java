@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 import org.stegosuite.application.StegosuitePresenter;
 import org.stegosuite.application.StegosuiteUI;
 import org.stegosuite.image.embedding.Visualizer;
+import org.stegosuite.image.embedding.point.SpreadingMode;
 import org.stegosuite.image.format.ImageFormat;
 import org.stegosuite.model.exception.SteganoEmbedException;
 import org.stegosuite.model.exception.SteganoExtractException;
@@ -39,6 +40,9 @@ public class Cli
 			return;
 
 		pointFilter(cmd);
+		if (cmd.hasOption("permutation-spreading")) {
+			presenter.setSpreadingMode(SpreadingMode.PERMUTATION);
+		}
 
 		String message = cmd.getOptionValue("m");
 		if (message != null) {
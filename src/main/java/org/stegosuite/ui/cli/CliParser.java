@@ -36,12 +36,16 @@ public class CliParser {
 //				.desc("the secret key used for encryption of the content").build();
 		Option noNoise = Option.builder().longOpt("disable-noise-detection")
 				.desc("disables the automatic avoidance of homogeneous areas").build();
+		Option permutation = Option.builder().longOpt("permutation-spreading")
+				.desc("spreads the data in PNG and BMP images with a keyed permutation, which extracts faster, but can't be read by stegosuite 0.8.0 and older")
+				.build();
 //		Option extractPath = Option.builder().longOpt("extraction-path").desc("the folder to store extracted files")
 //				.build();
 
 //		options.addOption(stegokey); // TODO
 //		options.addOption(cryptokey); // TODO
 		options.addOption(noNoise);
+		options.addOption(permutation);
 //		options.addOption(extractPath); // TODO
 
 		try {
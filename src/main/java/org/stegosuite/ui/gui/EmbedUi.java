@@ -55,6 +55,7 @@ public class EmbedUi implements StegosuiteUI {
 	private Composite compositeImage;
 	private Text passwordField;
 	private Button checkBoxVisualize;
+	private Visualizer visualizer;
 	private ImageContainer imageContainer;
 	private Label imageLabel, payloadFileCounter, payloadFileSize;
 	private int fileSizeSum = 0;
@@ -236,9 +237,7 @@ public class EmbedUi implements StegosuiteUI {
 			
 			Gui.setStatusBarMsg(status);
 			imageContainer.setImageData(ImageState.STEG, imageData);
-			if (visualizer != null) {
-				imageContainer.setImageData(ImageState.STEG_VISUALIZED, visualizer.getImageData());
-			}
+			setVisualizer(visualizer);
 			extractButton.setEnabled(true);
 			updateVisualizationCheckbox();
 			cursor = new Cursor(Display.getDefault(), SWT.CURSOR_ARROW);
@@ -255,9 +254,7 @@ public class EmbedUi implements StegosuiteUI {
 	public void embeddingCompleted(ImageFormat embeddedImage, String outputPath, Visualizer visualizer) {
 		runInGuiThread(() -> {
 			imageContainer.setImageData(ImageState.STEG, embeddedImage.getImageData());
-			if (visualizer != null) {
-				imageContainer.setImageData(ImageState.STEG_VISUALIZED, visualizer.getImageData());
-			}
+			setVisualizer(visualizer);
 			Gui.setStatusBarMsg("Embedding completed. File saved to " + outputPath);
 			embedButton.setEnabled(true);
 			imageLabel.setImage(imageContainer.scaleImage(ImageState.STEG));
@@ -296,6 +293,8 @@ public class EmbedUi implements StegosuiteUI {
 	 */
 	void loadImage(ImageFormat image) {
 		presenter = new StegosuitePresenter(image, this);
+		presenter.setVisualizationEnabled(true);
+		visualizer = null;
 
 		embedButton.setEnabled(false);
 		extractButton.setEnabled(false);
@@ -336,12 +335,27 @@ public class EmbedUi implements StegosuiteUI {
 		});
 	}
 
+	/**
+	 * Replaces the visualization of the last embedding or extraction. The visualization image is
+	 * rendered when the visualize checkbox is ticked for the first time.
+	 *
+	 * @param visualizer
+	 */
+	private void setVisualizer(Visualizer visualizer) {
+		this.visualizer = visualizer;
+		imageContainer.setImageData(ImageState.STEG_VISUALIZED, null);
+	}
+
 	private void updateVisualizationCheckbox() {
-		if (imageContainer.getImageData(ImageState.STEG_VISUALIZED) != null) {
+		if (visualizer != null) {
 			if (checkBoxVisualize == null || checkBoxVisualize.isDisposed()) {
 				checkBoxVisualize = new Button(compositeImage, SWT.CHECK);
 				checkBoxVisualize.setText(L.getString("visualize_checkbox"));
 				checkBoxVisualize.addListener(SWT.Selection, event2 -> {
+					if (checkBoxVisualize.getSelection()
+							&& imageContainer.getImageData(ImageState.STEG_VISUALIZED) == null) {
+						imageContainer.setImageData(ImageState.STEG_VISUALIZED, visualizer.getImageData());
+					}
 					ImageState state = checkBoxVisualize.getSelection() ? ImageState.STEG_VISUALIZED : ImageState.STEG;
 					imageLabel.setImage(imageContainer.scaleImage(state));
 				});
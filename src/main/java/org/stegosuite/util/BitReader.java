@@ -0,0 +1,130 @@
+package org.stegosuite.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the bits of a byte array, MSB to LSB within each byte (BIG_ENDIAN). Bits are returned as
+ * primitives, up to 64 at a time, the first bit read in the highest of the returned bits.
+ */
+public class BitReader {
+
+	private final byte[] data;
+
+	/**
+	 * Total number of bits that can be read
+	 */
+	private final int length;
+
+	/**
+	 * Offset of the next bit to read
+	 */
+	private int position = 0;
+
+	/**
+	 * Creates a reader over all bits of data
+	 *
+	 * @param data
+	 */
+	public BitReader(byte[] data) {
+		this(data, data.length * 8);
+	}
+
+	/**
+	 * Creates a reader over the first length bits of data
+	 *
+	 * @param data
+	 * @param length
+	 */
+	public BitReader(byte[] data, int length) {
+		if (length < 0 || length > data.length * 8) {
+			throw new IllegalArgumentException("Invalid number of bits: " + length);
+		}
+		this.data = data;
+		this.length = length;
+	}
+
+	/**
+	 * Returns true if there are bits left to read
+	 *
+	 * @return
+	 */
+	public boolean hasNext() {
+		return position < length;
+	}
+
+	/**
+	 * Returns the number of bits left to read
+	 *
+	 * @return
+	 */
+	public int remaining() {
+		return length - position;
+	}
+
+	/**
+	 * Returns the offset of the next bit to read
+	 *
+	 * @return
+	 */
+	public int position() {
+		return position;
+	}
+
+	/**
+	 * Moves the reader to the bit with the passed offset
+	 *
+	 * @param position
+	 */
+	public void seek(int position) {
+		if (position < 0 || position > length) {
+			throw new IllegalArgumentException("Invalid position: " + position);
+		}
+		this.position = position;
+	}
+
+	/**
+	 * Reads the next bit
+	 *
+	 * @return 0 or 1
+	 * @throws NoSuchElementException if all bits have been read
+	 */
+	public int readBit()
+			throws NoSuchElementException {
+		if (position >= length) {
+			throw new NoSuchElementException("No more bits to read");
+		}
+		int bit = (data[position >>> 3] >>> (7 - (position & 7))) & 1;
+		position++;
+		return bit;
+	}
+
+	/**
+	 * Reads the next count bits
+	 *
+	 * @param count number of bits to read, 0 to 64
+	 * @return the bits, the first bit read in bit count - 1
+	 * @throws NoSuchElementException if less than count bits are left
+	 */
+	public long readBits(int count)
+			throws NoSuchElementException {
+		if (count < 0 || count > 64) {
+			throw new IllegalArgumentException("Invalid number of bits: " + count);
+		}
+		if (count > length - position) {
+			throw new NoSuchElementException("No more bits to read");
+		}
+
+		// Take as many bits as possible from each byte
+		long bits = 0;
+		int remaining = count;
+		while (remaining > 0) {
+			int bitInByte = position & 7;
+			int n = Math.min(8 - bitInByte, remaining);
+			int value = ((data[position >>> 3] & 0xFF) >>> (8 - bitInByte - n)) & ((1 << n) - 1);
+			bits = (bits << n) | value;
+			position += n;
+			remaining -= n;
+		}
+		return bits;
+	}
+}
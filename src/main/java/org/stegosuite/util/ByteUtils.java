@@ -5,9 +5,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.Random;
 import java.util.function.Predicate;
 
@@ -81,25 +79,6 @@ public class ByteUtils {
 		} while (true);
 	}
 
-	/**
-	 * Converts an array of 8 bits to one byte. If you pass LITTLE_ENDIAN as byteOrder, index 0 is
-	 * LSB, index 7 is MSB. If you pass BIG_ENDIAN as byteOrder, index 0 is MSB, index 7 is LSB.
-	 *
-	 * @param bits
-	 * @param byteOrder
-	 * @return
-	 */
-	public static byte bitsToByte(byte[] bits, ByteOrder byteOrder) {
-		byte b = 0;
-		for (int i = 0; i < 8; i++) {
-			int index = byteOrder.equals(ByteOrder.LITTLE_ENDIAN) ? i : 7 - i;
-			if (bits[index] != 0) {
-				b = (byte) (b | (1 << i));
-			}
-		}
-		return b;
-	}
-
 	/**
 	 * Returns the bit at the specified index of b. Index 0 is LSB, index 7 is MSB
 	 *
@@ -167,35 +146,4 @@ public class ByteUtils {
 		return i % 2 != 0;
 	}
 
-	/**
-	 * Returns an Iterable that yields bits for all bytes provided in the input byte array, going
-	 * from LSB to MSB for each byte
-	 *
-	 * @param bytes
-	 * @param byteOrder
-	 * @return
-	 */
-	public static Iterable<Byte> iterateBits(byte[] bytes, ByteOrder byteOrder) {
-		return () -> new Iterator<Byte>() {
-
-			private int byteIndex = 0;
-			private int bitIndex = 0;
-
-			@Override
-			public boolean hasNext() {
-				return !((byteIndex == bytes.length) && (bitIndex == 0));
-			}
-
-			@Override
-			public Byte next() {
-				byte orderedBitIndex = (byte) (byteOrder == ByteOrder.LITTLE_ENDIAN ? bitIndex : 7 - bitIndex);
-				byte b = getBitAt(bytes[byteIndex], orderedBitIndex);
-				if ((bitIndex = ++bitIndex % 8) == 0) {
-					byteIndex++;
-				}
-				return b;
-			}
-		};
-	}
-
 }
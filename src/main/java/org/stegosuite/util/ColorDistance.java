@@ -1,9 +1,7 @@
 package org.stegosuite.util;
 
 import java.awt.*;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 
 /**
  * 
@@ -16,9 +14,14 @@ public enum ColorDistance {
 	RGB_EUCLID {
 
 		@Override
-		protected Double getDistance(Color rgb1, Color rgb2) {
-			return Math.sqrt(Math.pow(rgb1.getRed() - rgb2.getRed(), 2) + Math.pow(rgb1.getGreen() - rgb2.getGreen(), 2)
-					+ Math.pow(rgb1.getBlue() - rgb2.getBlue(), 2));
+		protected double[] toCoordinates(int rgb) {
+			return new double[] { (rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF };
+		}
+
+		@Override
+		protected double getDistance(double[] rgb1, double[] rgb2) {
+			return Math.sqrt(Math.pow(rgb1[0] - rgb2[0], 2) + Math.pow(rgb1[1] - rgb2[1], 2)
+					+ Math.pow(rgb1[2] - rgb2[2], 2));
 		}
 	},
 
@@ -28,21 +31,48 @@ public enum ColorDistance {
 	CIEDE_2000 {
 
 		@Override
-		protected Double getDistance(Color rgb1, Color rgb2) {
-			double[] lab1 = rgb2lab(rgb1.getRed(), rgb1.getGreen(), rgb1.getBlue());
-			double[] lab2 = rgb2lab(rgb2.getRed(), rgb2.getGreen(), rgb2.getBlue());
+		protected double[] toCoordinates(int rgb) {
+			return rgb2lab((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+		}
+
+		@Override
+		protected double getDistance(double[] lab1, double[] lab2) {
 			return ciede2000(lab1, lab2);
 		}
 	};
 
-	protected abstract Double getDistance(Color rgb1, Color rgb2);
+	/**
+	 * Recently computed distances, null until caching is enabled with setCacheCapacity()
+	 */
+	private volatile DistanceCache cache = null;
 
-	private static Map<ColorDistance, Map<InterchangeablePair<Color, Color>, Double>> cache = null;
+	/**
+	 * Converts a 24 bit RGB value into the color space the distance is computed in
+	 *
+	 * @param rgb
+	 * @return
+	 */
+	protected abstract double[] toCoordinates(int rgb);
+
+	/**
+	 * Computes the distance between two colors that have been converted with toCoordinates()
+	 *
+	 * @param coordinates1
+	 * @param coordinates2
+	 * @return
+	 */
+	protected abstract double getDistance(double[] coordinates1, double[] coordinates2);
 
-	static {
-		cache = new HashMap<>(ColorDistance.values().length);
-		for (ColorDistance distance : ColorDistance.values()) {
-			cache.put(distance, new ConcurrentHashMap<>());
+	/**
+	 * Enables caching of the distances computed by distance(), which is off by default. The
+	 * cache has a fixed size, so long-running processes that compare colors of many different
+	 * palettes don't run out of memory. The cached distances are discarded.
+	 *
+	 * @param capacity The maximum number of cached distances per algorithm, 0 to disable caching
+	 */
+	public static void setCacheCapacity(int capacity) {
+		for (ColorDistance distance : values()) {
+			distance.cache = capacity > 0 ? new DistanceCache(capacity) : null;
 		}
 	}
 
@@ -57,17 +87,63 @@ public enum ColorDistance {
 		if (rgb1 == null || rgb2 == null) {
 			return null;
 		}
+		return distance(rgb1.getRGB(), rgb2.getRGB());
+	}
 
-		if (rgb1.equals(rgb2)) {
+	/**
+	 * Compares two RGB colors according to the current distance algorithm. The alpha channel is
+	 * ignored.
+	 *
+	 * @param rgb1 First color for the comparison, as a packed RGB value.
+	 * @param rgb2 Second color for the comparison, as a packed RGB value.
+	 * @return The distance between the two colors according to the current distance algorithm.
+	 */
+	public double distance(int rgb1, int rgb2) {
+		rgb1 &= 0xFFFFFF;
+		rgb2 &= 0xFFFFFF;
+		if (rgb1 == rgb2) {
 			return 0.0;
 		}
 
-		InterchangeablePair<Color, Color> pair = new InterchangeablePair<>(rgb1, rgb2);
-		Double distance = cache.get(this).computeIfAbsent(pair, k -> getDistance(rgb1, rgb2));
-
+		DistanceCache cache = this.cache;
+		long key = DistanceCache.key(rgb1, rgb2);
+		double distance = cache == null ? Double.NaN : cache.get(key);
+		if (Double.isNaN(distance)) {
+			distance = getDistance(toCoordinates(rgb1), toCoordinates(rgb2));
+			if (cache != null) {
+				cache.put(key, distance);
+			}
+		}
 		return distance;
 	}
 
+	/**
+	 * Computes the distances between all pairs of the passed colors. Each color is converted only
+	 * once, and the distance between colors i and j is stored at index {@code i * n + j} of the
+	 * returned matrix, where n is the number of colors.
+	 *
+	 * @param colors
+	 * @return
+	 */
+	public double[] getDistanceMatrix(List<Color> colors) {
+		int n = colors.size();
+		double[][] coordinates = new double[n][];
+		for (int i = 0; i < n; i++) {
+			coordinates[i] = toCoordinates(colors.get(i).getRGB());
+		}
+
+		double[] matrix = new double[n * n];
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++) {
+				double distance = colors.get(i).equals(colors.get(j)) ? 0.0
+						: getDistance(coordinates[i], coordinates[j]);
+				matrix[i * n + j] = distance;
+				matrix[j * n + i] = distance;
+			}
+		}
+		return matrix;
+	}
+
 	/**
 	 * Converts a color from the RGB color space the L*a*b color space
 	 *
@@ -120,7 +196,7 @@ public enum ColorDistance {
 	 * @return The degree of similarity between the two input colors according to the CIEDE2000
 	 *         color-difference formula.
 	 */
-	private static Double ciede2000(double[] lab1, double[] lab2) {
+	private static double ciede2000(double[] lab1, double[] lab2) {
 		// adapted from Sharma et al's MATLAB implementation at
 		// http://www.ece.rochester.edu/~gsharma/ciede2000/
 
@@ -2,11 +2,12 @@ package org.stegosuite.util;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.util.*;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.*;
@@ -18,7 +19,15 @@ import static java.util.stream.Collectors.*;
 public class ColorUtils {
 
 	/**
-	 * Sorts a list of RGB colors with a specific color distance algorithm
+	 * Minimum number of pixels processed by each thread when counting or remapping color indices
+	 */
+	private static final int PIXEL_CHUNK_SIZE = 1 << 18;
+
+	/**
+	 * Sorts a list of RGB colors with a specific color distance algorithm. Starting from each color,
+	 * a tour is built by repeatedly moving to the nearest remaining color, and the tour with the
+	 * smallest sum of distances is returned. Ties are broken in favor of the lower position in the
+	 * set of distinct colors, both when choosing the next color and when choosing the best tour.
 	 *
 	 * @param colors
 	 * @param colorDistance
@@ -29,53 +38,152 @@ public class ColorUtils {
 			return colors;
 		}
 
-		Set<Color> unsortedBase = new HashSet<>(colors);
-		Map<Double, List<Color>> sortedLists = new ConcurrentHashMap<>();
-
-		unsortedBase.parallelStream().forEach(base -> {
-			List<Color> unsorted = new ArrayList<>(unsortedBase);
-			unsorted.remove(base);
+		List<Color> distinctColors = new ArrayList<>(new HashSet<>(colors));
+		int n = distinctColors.size();
+		double[] distances = colorDistance.getDistanceMatrix(distinctColors);
 
-			List<Color> sorted = new ArrayList<>(unsortedBase.size());
-			sorted.add(base);
+		int[][] tours = new int[n][];
+		double[] sumDistances = new double[n];
+		IntStream.range(0, n).parallel().forEach(start -> {
+			int[] tour = new int[n];
+			boolean[] visited = new boolean[n];
+			tour[0] = start;
+			visited[start] = true;
 
-			Double sumDistance = 0.0;
-			while (!unsorted.isEmpty()) {
-				List<Double> distances = unsorted.stream()
-						.map(c -> colorDistance.distance(c, sorted.get(sorted.size() - 1))).collect(toList());
-				Double minDistance = Collections.min(distances);
+			double sumDistance = 0.0;
+			for (int i = 1; i < n; i++) {
+				int rowOffset = tour[i - 1] * n;
+				int nearest = -1;
+				double minDistance = Double.POSITIVE_INFINITY;
+				for (int candidate = 0; candidate < n; candidate++) {
+					if (!visited[candidate] && (nearest == -1 || distances[rowOffset + candidate] < minDistance)) {
+						nearest = candidate;
+						minDistance = distances[rowOffset + candidate];
+					}
+				}
 				sumDistance += minDistance;
-				sorted.add(unsorted.remove(distances.indexOf(minDistance)));
+				tour[i] = nearest;
+				visited[nearest] = true;
 			}
 
-			sortedLists.put(sumDistance, sorted);
+			tours[start] = tour;
+			sumDistances[start] = sumDistance;
 		});
 
-		return sortedLists.get(Collections.min(sortedLists.keySet()));
+		int best = 0;
+		for (int start = 1; start < n; start++) {
+			if (sumDistances[start] < sumDistances[best]) {
+				best = start;
+			}
+		}
+
+		List<Color> sorted = new ArrayList<>(n);
+		for (int index : tours[best]) {
+			sorted.add(distinctColors.get(index));
+		}
+		return sorted;
 	}
 
 	/**
-	 * Returns a histogram (or frequency map) of all colors referenced in the pixels array
+	 * Returns a histogram (or frequency map) of all colors referenced in the indices array
 	 *
 	 * @param colors
-	 * @param pixels
+	 * @param indices The color index of each pixel
 	 * @return
 	 */
-	public static Map<Color, Integer> getHistogram(List<Color> colors, int[] pixels) {
+	public static Map<Color, Integer> getHistogram(List<Color> colors, byte[] indices) {
+		return toColorHistogram(colors, getIndexHistogram(colors.size(), indices));
+	}
+
+	/**
+	 * Converts a histogram of color indices into a histogram of the colors at those indices. The
+	 * counts of colors that appear more than once in the color table are summed.
+	 *
+	 * @param colors
+	 * @param indexHistogram
+	 * @return
+	 */
+	public static Map<Color, Integer> toColorHistogram(List<Color> colors, int[] indexHistogram) {
 		Map<Color, Integer> histogram = new HashSet<>(colors).stream().collect(toMap(identity(), c -> 0));
-		Arrays.stream(pixels).mapToObj(colors::get).forEach(color -> histogram.put(color, histogram.get(color) + 1));
+		for (int i = 0; i < indexHistogram.length; i++) {
+			if (indexHistogram[i] > 0) {
+				histogram.merge(colors.get(i), indexHistogram[i], Integer::sum);
+			}
+		}
 		return histogram;
 	}
 
+	/**
+	 * Returns how often each index of a color table with colorCount colors is referenced in the
+	 * indices array. Large arrays are split into chunks that are counted in parallel.
+	 *
+	 * @param colorCount
+	 * @param indices The color index of each pixel
+	 * @return
+	 */
+	public static int[] getIndexHistogram(int colorCount, byte[] indices) {
+		int numChunks = Math.min(Runtime.getRuntime().availableProcessors(), indices.length / PIXEL_CHUNK_SIZE);
+		if (numChunks < 2) {
+			return getIndexHistogram(colorCount, indices, 0, indices.length);
+		}
+
+		int pixelsForEachChunk = (indices.length + numChunks - 1) / numChunks;
+		return IntStream.range(0, numChunks).parallel()
+				.mapToObj(chunk -> getIndexHistogram(colorCount, indices, chunk * pixelsForEachChunk,
+						Math.min(indices.length, (chunk + 1) * pixelsForEachChunk)))
+				.reduce((counts1, counts2) -> {
+					for (int i = 0; i < counts1.length; i++) {
+						counts1[i] += counts2[i];
+					}
+					return counts1;
+				}).get();
+	}
+
+	/**
+	 * Counts the references of the pixels from index from (inclusive) to index to (exclusive)
+	 */
+	private static int[] getIndexHistogram(int colorCount, byte[] indices, int from, int to) {
+		int[] counts = new int[colorCount];
+		for (int i = from; i < to; i++) {
+			counts[indices[i] & 0xFF]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Replaces each reference into the color table fromTable in the indices array by the first
+	 * reference to the same color in the color table toTable. Large arrays are split into chunks
+	 * that are remapped in parallel.
+	 *
+	 * @param indices The color index of each pixel, modified in place
+	 * @param fromTable
+	 * @param toTable
+	 */
+	public static void remapIndices(byte[] indices, List<Color> fromTable, List<Color> toTable) {
+		byte[] indexMapping = new byte[fromTable.size()];
+		for (int i = 0; i < indexMapping.length; i++) {
+			indexMapping[i] = (byte) toTable.indexOf(fromTable.get(i));
+		}
+
+		int numChunks = Math.max(1, indices.length / PIXEL_CHUNK_SIZE);
+		int pixelsForEachChunk = (indices.length + numChunks - 1) / numChunks;
+		IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+			int to = Math.min(indices.length, (chunk + 1) * pixelsForEachChunk);
+			for (int i = chunk * pixelsForEachChunk; i < to; i++) {
+				indices[i] = indexMapping[indices[i] & 0xFF];
+			}
+		});
+	}
+
 	/**
 	 * Returns the colors that are present in the color table but not referenced by any pixel
 	 *
 	 * @param colorTable
-	 * @param pixels
+	 * @param indices The color index of each pixel
 	 * @return
 	 */
-	public static Set<Color> getUnreferencedColors(List<Color> colorTable, int[] pixels) {
-		return getUnreferencedColors(getHistogram(colorTable, pixels));
+	public static Set<Color> getUnreferencedColors(List<Color> colorTable, byte[] indices) {
+		return getUnreferencedColors(getHistogram(colorTable, indices));
 	}
 
 	/**
@@ -143,15 +251,51 @@ public class ColorUtils {
 	 */
 	public static BufferedImage cloneBufferedImage(BufferedImage source, int imageType) {
 		if (source.getType() == imageType) {
-			boolean isAlphaPremultiplied = source.getColorModel().isAlphaPremultiplied();
-			WritableRaster raster = source.copyData(source.getRaster().createCompatibleWritableRaster());
-			return new BufferedImage(source.getColorModel(), raster, isAlphaPremultiplied, null);
-		} else {
-			BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), imageType);
-			Graphics2D g2d = copy.createGraphics();
-			g2d.drawImage(source, 0, 0, null);
-			g2d.dispose();
-			return copy;
+			return copyBufferedImage(source);
+		}
+		if (source.getRaster().getDataBuffer() instanceof CopyOnWriteDataBuffer) {
+			// Copy-on-write images are TYPE_CUSTOM, but their copy has the type of the original image
+			BufferedImage copy = copyBufferedImage(source);
+			if (copy.getType() == imageType) {
+				return copy;
+			}
+		}
+		BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), imageType);
+		Graphics2D g2d = copy.createGraphics();
+		g2d.drawImage(source, 0, 0, null);
+		g2d.dispose();
+		return copy;
+	}
+
+	/**
+	 * Copies the pixels of the passed buffered image into a raster with a standard data buffer, so
+	 * the copy of a copy-on-write image gets back the type of the original image
+	 *
+	 * @param source
+	 * @return
+	 */
+	private static BufferedImage copyBufferedImage(BufferedImage source) {
+		WritableRaster raster = source.getRaster();
+		WritableRaster copy = source.copyData(Raster.createWritableRaster(
+				raster.getSampleModel().createCompatibleSampleModel(raster.getWidth(), raster.getHeight()), null));
+		return new BufferedImage(source.getColorModel(), copy, source.isAlphaPremultiplied(), null);
+	}
+
+	/**
+	 * Creates a copy of the passed buffered image that shares all pixels with the source until
+	 * they are modified, see {@link CopyOnWriteDataBuffer}. The source must not be modified while
+	 * the copy is in use. Falls back to a full copy for data types that can't be shared.
+	 *
+	 * @param source
+	 * @return
+	 */
+	public static BufferedImage copyOnWriteBufferedImage(BufferedImage source) {
+		WritableRaster raster = source.getRaster();
+		if (!CopyOnWriteDataBuffer.isSupported(raster.getDataBuffer().getDataType())) {
+			return cloneBufferedImage(source);
 		}
+		WritableRaster copy = Raster.createWritableRaster(raster.getSampleModel(),
+				new CopyOnWriteDataBuffer(raster.getDataBuffer()), null);
+		return new BufferedImage(source.getColorModel(), copy, source.isAlphaPremultiplied(), null);
 	}
 }
@@ -0,0 +1,162 @@
+package org.stegosuite.util;
+
+import java.awt.image.DataBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A DataBuffer that shares the elements of another DataBuffer until they are written. The elements
+ * are split into tiles of {@link #TILE_SIZE} elements, and a tile is copied from the source the
+ * first time one of its elements is written. Untouched tiles are read from the source, so the
+ * source must not be modified while this buffer is in use.
+ * <p>
+ * Different elements may be read and written by different threads at the same time.
+ */
+public class CopyOnWriteDataBuffer
+		extends DataBuffer {
+
+	/**
+	 * Number of elements per tile, small enough that embedding a short message into a large image
+	 * copies only a small part of it
+	 */
+	public static final int TILE_SIZE = 1 << 10;
+
+	private static final int TILE_SHIFT = Integer.numberOfTrailingZeros(TILE_SIZE);
+
+	private static final int TILE_MASK = TILE_SIZE - 1;
+
+	private final DataBuffer source;
+
+	/**
+	 * The copied tiles of each bank, a byte[], short[] or int[] depending on the data type, null
+	 * for tiles that are still shared with the source
+	 */
+	private final AtomicReferenceArray<Object>[] tiles;
+
+	/**
+	 * Constructor
+	 *
+	 * @param source The buffer to share the elements of. Its data type must be TYPE_BYTE,
+	 *        TYPE_USHORT, TYPE_SHORT or TYPE_INT.
+	 */
+	@SuppressWarnings("unchecked")
+	public CopyOnWriteDataBuffer(DataBuffer source) {
+		super(source.getDataType(), source.getSize(), source.getNumBanks());
+		if (!isSupported(source.getDataType())) {
+			throw new IllegalArgumentException("Unsupported data type: " + source.getDataType());
+		}
+		this.source = source;
+		this.tiles = (AtomicReferenceArray<Object>[]) new AtomicReferenceArray<?>[source.getNumBanks()];
+		for (int bank = 0; bank < tiles.length; bank++) {
+			tiles[bank] = new AtomicReferenceArray<>((source.getSize() + TILE_MASK) >>> TILE_SHIFT);
+		}
+	}
+
+	/**
+	 * Returns true if buffers of the passed data type can be shared
+	 *
+	 * @param dataType
+	 * @return
+	 */
+	public static boolean isSupported(int dataType) {
+		return dataType == TYPE_BYTE || dataType == TYPE_USHORT || dataType == TYPE_SHORT || dataType == TYPE_INT;
+	}
+
+	/**
+	 * Returns the number of tiles that have been copied from the source so far
+	 *
+	 * @return
+	 */
+	public int getCopiedTileCount() {
+		int count = 0;
+		for (AtomicReferenceArray<Object> bankTiles : tiles) {
+			for (int i = 0; i < bankTiles.length(); i++) {
+				if (bankTiles.get(i) != null) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int getElem(int bank, int i) {
+		Object tile = tiles[bank].get(i >>> TILE_SHIFT);
+		if (tile == null) {
+			return source.getElem(bank, i);
+		}
+		switch (dataType) {
+			case TYPE_BYTE:
+				return ((byte[]) tile)[i & TILE_MASK] & 0xFF;
+			case TYPE_USHORT:
+				return ((short[]) tile)[i & TILE_MASK] & 0xFFFF;
+			case TYPE_SHORT:
+				return ((short[]) tile)[i & TILE_MASK];
+			default:
+				return ((int[]) tile)[i & TILE_MASK];
+		}
+	}
+
+	@Override
+	public void setElem(int bank, int i, int val) {
+		Object tile = tiles[bank].get(i >>> TILE_SHIFT);
+		if (tile == null) {
+			tile = copyTile(bank, i >>> TILE_SHIFT);
+		}
+		switch (dataType) {
+			case TYPE_BYTE:
+				((byte[]) tile)[i & TILE_MASK] = (byte) val;
+				break;
+			case TYPE_USHORT:
+			case TYPE_SHORT:
+				((short[]) tile)[i & TILE_MASK] = (short) val;
+				break;
+			default:
+				((int[]) tile)[i & TILE_MASK] = val;
+		}
+	}
+
+	/**
+	 * Copies a tile from the source, unless another thread did so already
+	 *
+	 * @param bank
+	 * @param tileIndex
+	 * @return the copied tile
+	 */
+	private synchronized Object copyTile(int bank, int tileIndex) {
+		Object tile = tiles[bank].get(tileIndex);
+		if (tile != null) {
+			return tile;
+		}
+
+		int from = tileIndex << TILE_SHIFT;
+		int length = Math.min(TILE_SIZE, size - from);
+		switch (dataType) {
+			case TYPE_BYTE: {
+				byte[] elements = new byte[length];
+				for (int i = 0; i < length; i++) {
+					elements[i] = (byte) source.getElem(bank, from + i);
+				}
+				tile = elements;
+				break;
+			}
+			case TYPE_USHORT:
+			case TYPE_SHORT: {
+				short[] elements = new short[length];
+				for (int i = 0; i < length; i++) {
+					elements[i] = (short) source.getElem(bank, from + i);
+				}
+				tile = elements;
+				break;
+			}
+			default: {
+				int[] elements = new int[length];
+				for (int i = 0; i < length; i++) {
+					elements[i] = source.getElem(bank, from + i);
+				}
+				tile = elements;
+			}
+		}
+		tiles[bank].set(tileIndex, tile);
+		return tile;
+	}
+}
@@ -0,0 +1,112 @@
+package org.stegosuite.util;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size cache of color distances keyed by a pair of RGB values packed into 48 bits. The
+ * entries are stored in primitive arrays with open addressing. When all slots a key may occupy are
+ * taken, one of them is evicted, so the memory used never grows beyond the initial capacity.
+ */
+class DistanceCache {
+
+	/**
+	 * Marks an empty slot. Packed keys use only the lower 48 bits, so they are never negative.
+	 */
+	private static final long EMPTY = -1L;
+
+	/**
+	 * Number of consecutive slots a key may be stored in
+	 */
+	private static final int MAX_PROBES = 8;
+
+	private final long[] keys;
+
+	private final double[] values;
+
+	private final int shift;
+
+	/**
+	 * Index of the slot to evict next, relative to the first slot of a key
+	 */
+	private int nextEviction = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param capacity The maximum number of entries, rounded up to a power of 2
+	 */
+	DistanceCache(int capacity) {
+		int size = Math.max(MAX_PROBES, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+		this.keys = new long[size];
+		this.values = new double[size];
+		this.shift = Long.SIZE - Integer.numberOfTrailingZeros(size);
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Packs two 24 bit RGB values into a key, independent of their order
+	 *
+	 * @param rgb1
+	 * @param rgb2
+	 * @return
+	 */
+	static long key(int rgb1, int rgb2) {
+		return rgb1 < rgb2 ? ((long) rgb1 << 24) | rgb2 : ((long) rgb2 << 24) | rgb1;
+	}
+
+	/**
+	 * Returns the cached distance of the key, or NaN if it is not cached
+	 *
+	 * @param key
+	 * @return
+	 */
+	synchronized double get(long key) {
+		int first = firstSlot(key);
+		for (int i = 0; i < MAX_PROBES; i++) {
+			int slot = (first + i) & (keys.length - 1);
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+			if (keys[slot] == EMPTY) {
+				break;
+			}
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Caches the distance of the key, evicting another entry if necessary
+	 *
+	 * @param key
+	 * @param value
+	 */
+	synchronized void put(long key, double value) {
+		int first = firstSlot(key);
+		int slot = -1;
+		for (int i = 0; i < MAX_PROBES && slot == -1; i++) {
+			int candidate = (first + i) & (keys.length - 1);
+			if (keys[candidate] == key || keys[candidate] == EMPTY) {
+				slot = candidate;
+			}
+		}
+		if (slot == -1) {
+			slot = (first + nextEviction) & (keys.length - 1);
+			nextEviction = (nextEviction + 1) % MAX_PROBES;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+	}
+
+	/**
+	 * Returns the number of entries the cache can hold
+	 *
+	 * @return
+	 */
+	int capacity() {
+		return keys.length;
+	}
+
+	private int firstSlot(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+}
@@ -7,6 +7,7 @@ import org.stegosuite.application.StegosuitePresenter;
 import org.stegosuite.application.StegosuiteUI;
 import org.stegosuite.image.embedding.EmbeddingProgress;
 import org.stegosuite.image.embedding.Visualizer;
+import org.stegosuite.image.embedding.point.SpreadingMode;
 import org.stegosuite.image.format.ImageFormat;
 import org.stegosuite.model.exception.SteganoEmbedException;
 import org.stegosuite.model.exception.SteganoExtractException;
@@ -29,6 +30,7 @@ public class EmbeddingAndExtractingTest {
     private final StegosuiteUI ui = new UIStub();
     private String outputPath;
     private String extractedMessage;
+    private SpreadingMode spreadingMode = SpreadingMode.SHUFFLE;
 
     @After
     public void tearDown() throws Exception {
@@ -50,6 +52,23 @@ public class EmbeddingAndExtractingTest {
         testEmbeddingAndThenExtractingOk("landscape.jpg");
     }
 
+    @Test
+    public void testEmbeddingAndExtractingFromBmpFileWithPermutation() throws Exception {
+        spreadingMode = SpreadingMode.PERMUTATION;
+        testEmbeddingAndThenExtractingOk("snow.bmp");
+    }
+
+    @Test(expected = SteganoKeyException.class)
+    public void testIncorrectPasswordWithPermutation() throws Throwable {
+        spreadingMode = SpreadingMode.PERMUTATION;
+        embedPayload("snow.bmp", THE_PASSWORD, THE_MESSAGE);
+        try {
+            extractPayload(outputPath, INCORRECT_PASSWORD);
+        } catch (Exception e) {
+            throw e.getCause();
+        }
+    }
+
     @Test(expected = SteganoKeyException.class)
     public void testIncorrectPasswordFromGifFile() throws Throwable {
         testExtractingWhenPasswordIsIncorrect("sunflower_embed_ok.gif");
@@ -84,6 +103,7 @@ public class EmbeddingAndExtractingTest {
     private void embedPayload(String imageName, String password, String message) throws SteganoImageException, SteganoEmbedException {
         String imagePath = pathOf(imageName);
         StegosuitePresenter presenter = getPresenterFor(imagePath);
+        presenter.setSpreadingMode(spreadingMode);
         presenter.addMessageToPayload(message);
         presenter.embedNotifying(new EmbeddingProgress(), password);
     }
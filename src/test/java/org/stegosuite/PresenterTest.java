@@ -125,7 +125,9 @@ public class PresenterTest implements StegosuiteUI, Observer {
 
 	private StegosuitePresenter presenterWithImage(String imageName) throws SteganoImageException {
 		ImageFormat image = getImage(imageName);
-		return new StegosuitePresenter(image, this);
+		StegosuitePresenter presenter = new StegosuitePresenter(image, this);
+		presenter.setVisualizationEnabled(true);
+		return presenter;
 	}
 
 	private ImageFormat getImage(String imageName) throws SteganoImageException {
@@ -0,0 +1,119 @@
+package org.stegosuite.image.embedding;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares LsbRaster with changing pixels through getRGB() and setRGB()
+ */
+public class LsbRasterTest {
+
+	private static final int WIDTH = 64;
+
+	private static final int HEIGHT = 48;
+
+	private BufferedImage randomImage(int type) {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+		Random random = new Random(type);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		return image;
+	}
+
+	private BufferedImage random16BitImage(boolean hasAlpha) {
+		ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), hasAlpha, false,
+				hasAlpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE, DataBuffer.TYPE_USHORT);
+		WritableRaster raster = colorModel.createCompatibleWritableRaster(WIDTH, HEIGHT);
+		Random random = new Random(16);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				for (int band = 0; band < raster.getNumBands(); band++) {
+					raster.setSample(x, y, band, random.nextInt(1 << 16));
+				}
+			}
+		}
+		return new BufferedImage(colorModel, raster, false, null);
+	}
+
+	private BufferedImage copy(BufferedImage image) {
+		ColorModel colorModel = image.getColorModel();
+		return new BufferedImage(colorModel, image.copyData(null), colorModel.isAlphaPremultiplied(), null);
+	}
+
+	private void assertSameAsRgb(BufferedImage image) {
+		BufferedImage expected = copy(image);
+		BufferedImage actual = copy(image);
+		LsbRaster raster = LsbRaster.of(actual);
+		Random random = new Random(42);
+
+		for (int i = 0; i < 10000; i++) {
+			int index = random.nextInt(WIDTH * HEIGHT);
+			int bitIndex = random.nextInt(8);
+			int count = 1 + random.nextInt(3);
+			int bits = random.nextInt(1 << count);
+
+			int oldRgb = expected.getRGB(index % WIDTH, index / WIDTH) | 0xFF000000;
+			int newRgb = oldRgb;
+			for (int channel = 0; channel < count; channel++) {
+				int shift = 16 - 8 * channel + bitIndex;
+				newRgb = (newRgb & ~(1 << shift)) | (((bits >> (count - 1 - channel)) & 1) << shift);
+			}
+			expected.setRGB(index % WIDTH, index / WIDTH, newRgb);
+
+			assertEquals(newRgb != oldRgb, raster.setBits(index, bitIndex, bits, count));
+			int rgb = expected.getRGB(index % WIDTH, index / WIDTH);
+			int expectedBits = ((rgb >> (16 + bitIndex)) & 1) << 2 | ((rgb >> (8 + bitIndex)) & 1) << 1
+					| ((rgb >> bitIndex) & 1);
+			assertEquals(expectedBits, raster.getBits(index, bitIndex));
+		}
+
+		assertArrayEquals(expected.getRaster().getPixels(0, 0, WIDTH, HEIGHT, (int[]) null),
+				actual.getRaster().getPixels(0, 0, WIDTH, HEIGHT, (int[]) null));
+	}
+
+	@Test
+	public void test3ByteBgr() {
+		assertSameAsRgb(randomImage(BufferedImage.TYPE_3BYTE_BGR));
+	}
+
+	@Test
+	public void test4ByteAbgr() {
+		assertSameAsRgb(randomImage(BufferedImage.TYPE_4BYTE_ABGR));
+	}
+
+	@Test
+	public void testIntRgb() {
+		assertSameAsRgb(randomImage(BufferedImage.TYPE_INT_RGB));
+	}
+
+	@Test
+	public void testIntArgb() {
+		assertSameAsRgb(randomImage(BufferedImage.TYPE_INT_ARGB));
+	}
+
+	@Test
+	public void test16Bit() {
+		assertSameAsRgb(random16BitImage(false));
+		assertSameAsRgb(random16BitImage(true));
+	}
+
+	@Test
+	public void testOtherTypes() {
+		assertSameAsRgb(randomImage(BufferedImage.TYPE_BYTE_GRAY));
+		assertSameAsRgb(randomImage(BufferedImage.TYPE_4BYTE_ABGR_PRE));
+	}
+}
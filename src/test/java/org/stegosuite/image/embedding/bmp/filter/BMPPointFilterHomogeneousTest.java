@@ -0,0 +1,56 @@
+package org.stegosuite.image.embedding.bmp.filter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.stegosuite.image.embedding.point.FilteredPoints;
+import org.stegosuite.image.format.BMPImage;
+import org.stegosuite.model.exception.SteganoImageException;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+public class BMPPointFilterHomogeneousTest {
+
+	private BMPImage image = null;
+
+	@Before
+	public void beforeMethod()
+			throws SteganoImageException {
+		image = new BMPImage();
+		image.load(new File(this.getClass().getClassLoader().getResource("snow.bmp").getFile()));
+	}
+
+	/**
+	 * The filtered points decide where payload bits go, so they must not change between releases.
+	 * The expected values were computed with the original implementation of the filter.
+	 */
+	@Test
+	public void testFilteredPoints() {
+		FilteredPoints filteredPoints = new BMPPointFilterHomogeneous().getFilteredPoints(image);
+		assertEquals(96785, filteredPoints.count());
+		assertEquals(906731001200924054L, hash(filteredPoints));
+	}
+
+	@Test
+	public void testSinglePointsMatchFilteredPoints() {
+		FilteredPoints filteredPoints = new BMPPointFilterHomogeneous().getFilteredPoints(image);
+
+		// A fresh filter decides about single points without the bitmap
+		BMPPointFilterHomogeneous filter = new BMPPointFilterHomogeneous();
+		int width = image.getWidth();
+		for (int index = 0; index < width * image.getHeight(); index += 97) {
+			int x = index % width;
+			int y = index / width;
+			assertEquals(filteredPoints.isFiltered(x, y), filter.isFiltered(image, x, y));
+		}
+	}
+
+	private static long hash(FilteredPoints filteredPoints) {
+		long hash = 0;
+		for (int index = filteredPoints.nextFiltered(0); index >= 0; index = filteredPoints.nextFiltered(index + 1)) {
+			hash = 31 * hash + index;
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,49 @@
+package org.stegosuite.image.embedding.gif;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PermutationCodecTest {
+
+	@Test
+	public void testMatchesInsertionSequence() {
+		Random random = new Random(1);
+		for (int n : new int[] { 1, 2, 3, 17, 64, 255, 256 }) {
+			BigInteger number = new BigInteger(n * 8, random);
+
+			// Insert the elements one at a time, dividing the number by the size of the list
+			List<Integer> list = new ArrayList<>();
+			BigInteger remaining = number;
+			int[] digits = new int[n];
+			for (int m = 0; m < n; m++) {
+				digits[m] = remaining.mod(BigInteger.valueOf(m + 1)).intValue();
+				remaining = remaining.divide(BigInteger.valueOf(m + 1));
+				list.add(digits[m], m);
+			}
+			int[] positions = new int[n];
+			for (int i = 0; i < n; i++) {
+				positions[list.get(i)] = i;
+			}
+
+			assertArrayEquals(digits, PermutationCodec.toDigits(number, n));
+			assertArrayEquals(positions, PermutationCodec.toPositions(digits));
+			assertArrayEquals(digits, PermutationCodec.fromPositions(positions));
+			assertEquals(number.subtract(remaining.multiply(factorial(n))), PermutationCodec.fromDigits(digits));
+		}
+	}
+
+	private static BigInteger factorial(int n) {
+		BigInteger factorial = BigInteger.ONE;
+		for (int i = 2; i <= n; i++) {
+			factorial = factorial.multiply(BigInteger.valueOf(i));
+		}
+		return factorial;
+	}
+}
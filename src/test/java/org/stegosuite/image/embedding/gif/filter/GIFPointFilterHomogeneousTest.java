@@ -0,0 +1,53 @@
+package org.stegosuite.image.embedding.gif.filter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.stegosuite.image.embedding.point.FilteredPoints;
+import org.stegosuite.image.format.GIFImage;
+import org.stegosuite.model.exception.SteganoImageException;
+import org.stegosuite.util.ColorDistance;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+public class GIFPointFilterHomogeneousTest {
+
+	private GIFImage image = null;
+
+	@Before
+	public void beforeMethod()
+			throws SteganoImageException {
+		image = new GIFImage();
+		image.load(new File(this.getClass().getClassLoader().getResource("sunflower.gif").getFile()));
+	}
+
+	/**
+	 * The filtered points decide where payload bits go, so they must not change between releases.
+	 * The expected values were computed with the original implementation of the filter.
+	 */
+	@Test
+	public void testFilteredPoints() {
+		FilteredPoints filteredPoints = new GIFPointFilterHomogeneous().getFilteredPoints(image);
+		assertEquals(825971, filteredPoints.count());
+		assertEquals(-5236081457110204470L, hash(filteredPoints));
+	}
+
+	/**
+	 * The filter compares colors by their position in the sorted color table, which is pinned to
+	 * the order of the original sorting as well
+	 */
+	@Test
+	public void testSortedColorTable() {
+		assertEquals(1948643082, image.getSortedColorTable(ColorDistance.CIEDE_2000).hashCode());
+		assertEquals(-916070444, image.getSortedColorTable(ColorDistance.RGB_EUCLID).hashCode());
+	}
+
+	private static long hash(FilteredPoints filteredPoints) {
+		long hash = 0;
+		for (int index = filteredPoints.nextFiltered(0); index >= 0; index = filteredPoints.nextFiltered(index + 1)) {
+			hash = 31 * hash + index;
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,91 @@
+package org.stegosuite.image.embedding.point;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.stegosuite.image.embedding.bmp.filter.BMPPointFilterHomogeneous;
+import org.stegosuite.image.embedding.bmp.filter.BMPPointFilterNone;
+import org.stegosuite.image.format.BMPImage;
+import org.stegosuite.model.exception.SteganoImageException;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+public class PermutationPointGeneratorTest {
+
+	private static final String KEY = "password";
+
+	private BMPImage image = null;
+
+	@Before
+	public void beforeMethod()
+			throws SteganoImageException {
+		image = new BMPImage();
+		image.load(new File(this.getClass().getClassLoader().getResource("snow.bmp").getFile()));
+	}
+
+	@Test
+	public void testEachPointOncePerIteration() {
+		int pointCount = image.getWidth() * image.getHeight();
+		PermutationPointGenerator<BMPImage> generator = new PermutationPointGenerator<>(image, KEY,
+				new BMPPointFilterNone());
+
+		for (int iteration = 1; iteration <= 2; iteration++) {
+			BitSet generated = new BitSet(pointCount);
+			for (int i = 0; i < pointCount; i++) {
+				int index = generator.nextIndex();
+				assertFalse(generated.get(index));
+				generated.set(index);
+			}
+			assertEquals(pointCount, generated.cardinality());
+			assertEquals(iteration, generator.getIterationCount());
+		}
+	}
+
+	@Test
+	public void testSameKeySameSequence() {
+		PermutationPointGenerator<BMPImage> generator1 = new PermutationPointGenerator<>(image, KEY,
+				new BMPPointFilterNone());
+		PermutationPointGenerator<BMPImage> generator2 = new PermutationPointGenerator<>(image, KEY,
+				new BMPPointFilterNone());
+		PermutationPointGenerator<BMPImage> generator3 = new PermutationPointGenerator<>(image, KEY + "x",
+				new BMPPointFilterNone());
+
+		int differences = 0;
+		for (int i = 0; i < 1000; i++) {
+			int index = generator1.nextIndex();
+			assertEquals(index, generator2.nextIndex());
+			differences += index != generator3.nextIndex() ? 1 : 0;
+		}
+		assertNotEquals(0, differences);
+	}
+
+	@Test
+	public void testSkipsFilteredPoints() {
+		PointFilter<BMPImage> filter = new BMPPointFilterHomogeneous();
+		FilteredPoints filteredPoints = new BMPPointFilterHomogeneous().getFilteredPoints(image);
+		int unfilteredCount = image.getWidth() * image.getHeight() - filteredPoints.count();
+
+		PermutationPointGenerator<BMPImage> generator = new PermutationPointGenerator<>(image, KEY, filter);
+		BitSet generated = new BitSet();
+		for (int i = 0; i < unfilteredCount; i++) {
+			int index = generator.nextIndex();
+			assertFalse(filteredPoints.isFiltered(index));
+			generated.set(index);
+		}
+		assertEquals(unfilteredCount, generated.cardinality());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testMaxIterations() {
+		PermutationPointGenerator<BMPImage> generator = new PermutationPointGenerator<>(image, KEY,
+				new BMPPointFilterHomogeneous());
+		while (true) {
+			generator.nextIndex();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package org.stegosuite.image.embedding.point;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.stegosuite.image.embedding.bmp.filter.BMPPointFilterHomogeneous;
+import org.stegosuite.image.embedding.bmp.filter.BMPPointFilterNone;
+import org.stegosuite.image.format.BMPImage;
+import org.stegosuite.model.exception.SteganoImageException;
+import org.stegosuite.util.CryptoUtils;
+
+import java.awt.*;
+import java.io.File;
+import java.util.*;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PointGeneratorTest {
+
+	private static final String KEY = "password";
+
+	private BMPImage image = null;
+
+	@Before
+	public void beforeMethod()
+			throws SteganoImageException {
+		image = new BMPImage();
+		image.load(new File(this.getClass().getClassLoader().getResource("snow.bmp").getFile()));
+	}
+
+	/**
+	 * Builds the point sequence of a single iteration the way it was built before points were
+	 * stored as primitive indices: a shuffled list of all unfiltered points
+	 */
+	private List<Point> referenceSequence(FilteredPoints filteredPoints, Random random) {
+		List<Point> points = new LinkedList<>();
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				if (!filteredPoints.isFiltered(x, y)) {
+					points.add(new Point(x, y));
+				}
+			}
+		}
+		Collections.shuffle(points, random);
+		return points;
+	}
+
+	@Test
+	public void testSequenceMatchesShuffledList() {
+		PointFilter<BMPImage> filter = new BMPPointFilterNone();
+		PointGenerator<BMPImage> generator = new PointGenerator<>(image, KEY, filter);
+		Random random = CryptoUtils.seededRandom(KEY);
+
+		// Cover a complete iteration plus the start of the next one
+		for (int iteration = 1; iteration <= 2; iteration++) {
+			for (Point expected : referenceSequence(filter.getFilteredPoints(image), random)) {
+				assertEquals(expected, generator.nextPoint());
+				assertEquals(iteration, generator.getIterationCount());
+			}
+		}
+	}
+
+	@Test
+	public void testSequenceMatchesShuffledListWithFilter() {
+		PointFilter<BMPImage> filter = new BMPPointFilterHomogeneous();
+		PointGenerator<BMPImage> generator = new PointGenerator<>(image, KEY, filter);
+		Random random = CryptoUtils.seededRandom(KEY);
+
+		for (Point expected : referenceSequence(filter.getFilteredPoints(image), random)) {
+			int index = generator.nextIndex();
+			assertEquals(expected.y * image.getWidth() + expected.x, index);
+		}
+	}
+
+	@Test
+	public void testWasGenerated() {
+		PointGenerator<BMPImage> generator = new PointGenerator<>(image, KEY, new BMPPointFilterNone());
+		Point first = generator.nextPoint();
+		Point second = generator.nextPoint();
+		assertTrue(generator.wasGenerated(first));
+		assertTrue(generator.wasGenerated(second.y * image.getWidth() + second.x));
+		assertTrue(generator.wasGenerated(new Point(-1, 0)));
+
+		Point other = first.equals(new Point(0, 0)) || second.equals(new Point(0, 0)) ? new Point(1, 0)
+				: new Point(0, 0);
+		assertFalse(generator.wasGenerated(other));
+	}
+}
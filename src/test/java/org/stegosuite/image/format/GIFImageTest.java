@@ -4,12 +4,23 @@ import org.junit.Before;
 import org.junit.Test;
 import org.stegosuite.model.exception.SteganoImageException;
 
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class GIFImageTest {
 
@@ -51,4 +62,94 @@ public class GIFImageTest {
 		image.setPixels(pixels);
 		assertArrayEquals(image.getPixels(), pixels);
 	}
+
+	@Test
+	public void testIndexHistogram() {
+		int pixelCount = image.getWidth() * image.getHeight();
+		assertEquals(pixelCount, IntStream.of(image.getIndexHistogram()).sum());
+		assertEquals(image.getColorTable().size(), image.getIndexHistogram().length);
+
+		// The histogram is recomputed after the pixels changed
+		image.setPixels(new int[pixelCount]);
+		assertEquals(pixelCount, image.getIndexHistogram()[0]);
+		assertEquals(1, image.getReferencedIndices().cardinality());
+	}
+
+	@Test
+	public void testSaveAndLoad()
+			throws SteganoImageException, IOException {
+		File file = File.createTempFile("stegosuite", ".gif");
+		file.deleteOnExit();
+		int[] pixels = image.getPixels();
+		pixels[0] = (pixels[0] + 1) % image.getColorTable().size();
+		image.setPixels(pixels);
+		image.save(file);
+
+		// The saved file is read the same by ImageIO
+		BufferedImage reference = ImageIO.read(file);
+		int[] referencePixels = reference.getRaster().getPixels(0, 0, reference.getWidth(), reference.getHeight(),
+				(int[]) null);
+		assertArrayEquals(pixels, referencePixels);
+
+		GIFImage loaded = new GIFImage();
+		loaded.load(file);
+		assertArrayEquals(pixels, loaded.getPixels());
+		assertEquals(image.getColorTable(), loaded.getColorTable());
+	}
+
+	@Test
+	public void testLoadInterlacedSmallPalette()
+			throws SteganoImageException, IOException {
+		// The JDK reader gets images of less than 5 rows wrong, so the pixels are compared to the
+		// ones that were written
+		for (int height : new int[] { 1, 3, 4, 5, 13 }) {
+			IndexColorModel colorModel = new IndexColorModel(2, 4, new byte[] { 0, (byte) 255, 0, 0 },
+					new byte[] { 0, 0, (byte) 255, 0 }, new byte[] { 0, 0, 0, (byte) 255 });
+			BufferedImage source = new BufferedImage(7, height, BufferedImage.TYPE_BYTE_BINARY, colorModel);
+			int[] pixels = new int[7 * height];
+			Arrays.setAll(pixels, i -> (i * 5 + i / 7) % 4);
+			source.getRaster().setPixels(0, 0, 7, height, pixels);
+
+			File file = File.createTempFile("stegosuite", ".gif");
+			file.deleteOnExit();
+			ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+			try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+				writer.setOutput(output);
+				writer.write(null, new IIOImage(source, null, null), param);
+			} finally {
+				writer.dispose();
+			}
+
+			GIFImage loaded = new GIFImage();
+			loaded.load(file);
+			assertEquals(height, loaded.getHeight());
+			assertEquals(4, loaded.getColorTable().size());
+			assertArrayEquals(pixels, loaded.getPixels());
+		}
+	}
+
+	@Test
+	public void testSaveKeepsTrailingExtensions()
+			throws SteganoImageException, IOException {
+		File file = File.createTempFile("stegosuite", ".gif");
+		file.deleteOnExit();
+		image.save(file);
+
+		// Insert a comment extension between the image data and the trailer
+		byte[] comment = { 0x21, (byte) 0xFE, 5, 'h', 'e', 'l', 'l', 'o', 0 };
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		byte[] withComment = Arrays.copyOf(bytes, bytes.length + comment.length);
+		System.arraycopy(comment, 0, withComment, bytes.length - 1, comment.length);
+		withComment[withComment.length - 1] = 0x3B;
+		Files.write(file.toPath(), withComment);
+
+		GIFImage loaded = new GIFImage();
+		loaded.load(file);
+		loaded.save(file);
+		String saved = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+		assertTrue(saved.endsWith(new String(comment, StandardCharsets.ISO_8859_1) + ";"));
+		assertArrayEquals(image.getPixels(), loaded.getPixels());
+	}
 }
@@ -0,0 +1,47 @@
+package org.stegosuite.image.format;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.stegosuite.image.jpgtemp.james.JpegCoefficientPlane;
+import org.stegosuite.model.exception.SteganoImageException;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class JPGImageTest {
+
+	private JPGImage image = null;
+
+	@Before
+	public void beforeMethod()
+			throws SteganoImageException {
+		image = new JPGImage();
+		image.load(new File(this.getClass().getClassLoader().getResource("landscape.jpg").getFile()));
+	}
+
+	@Test
+	public void testCoefficientPlane() {
+		JpegCoefficientPlane plane = image.getCoefficientPlane(80);
+		assertEquals(3559, plane.getCapacity());
+
+		// Every AC coefficient is counted once
+		int acCount = plane.getCoefficientCount() - plane.getCoefficientCount() / 64;
+		assertEquals(acCount, plane.getZeroCount() + plane.getOneCount() + plane.getLargeCount());
+
+		// The plane is computed once per quality, and shared with copies of the image
+		assertSame(plane, image.getCoefficientPlane(80));
+		assertSame(plane, ((JPGImage) image.copyOnWrite()).getCoefficientPlane(80));
+		assertNotSame(plane, image.getCoefficientPlane(75));
+	}
+
+	@Test
+	public void testCloneOfCopyOnWriteKeepsImageType() {
+		ImageFormat copy = image.copyOnWrite();
+		assertEquals(BufferedImage.TYPE_CUSTOM, copy.getBufferedImage().getType());
+		assertEquals(image.getBufferedImage().getType(), copy.clone().getBufferedImage().getType());
+	}
+}
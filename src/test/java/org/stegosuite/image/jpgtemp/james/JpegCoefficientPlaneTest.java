@@ -0,0 +1,68 @@
+package org.stegosuite.image.jpgtemp.james;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.stegosuite.image.format.JPGImage;
+import org.stegosuite.model.exception.SteganoImageException;
+import org.stegosuite.util.ColorUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class JpegCoefficientPlaneTest {
+
+	private BufferedImage image = null;
+
+	@Before
+	public void beforeMethod()
+			throws SteganoImageException {
+		JPGImage jpg = new JPGImage();
+		jpg.load(new File(this.getClass().getClassLoader().getResource("landscape.jpg").getFile()));
+		image = jpg.getBufferedImage();
+	}
+
+	private BufferedImage convert(int imageType) {
+		BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), imageType);
+		converted.getGraphics().drawImage(image, 0, 0, null);
+		return converted;
+	}
+
+	/**
+	 * The coefficients decide where F5 embeds, so they must not change between releases. The
+	 * expected hashes were computed with the original color conversion and DCT. Each image type
+	 * that is read straight from the raster has to give the same coefficients.
+	 */
+	@Test
+	public void testCoefficients() {
+		for (int imageType : new int[] { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+				BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR }) {
+			BufferedImage converted = convert(imageType);
+			assertEquals(197105659, Arrays.hashCode(new JpegCoefficientPlane(converted, 80).getCoefficients()));
+			assertEquals(-1039102812, Arrays.hashCode(new JpegCoefficientPlane(converted, 50).getCoefficients()));
+		}
+	}
+
+	/**
+	 * Other image types are read with getRGB
+	 */
+	@Test
+	public void testCoefficientsOfOtherImageTypes() {
+		BufferedImage converted = convert(BufferedImage.TYPE_USHORT_565_RGB);
+		assertEquals(1417409898, Arrays.hashCode(new JpegCoefficientPlane(converted, 80).getCoefficients()));
+		assertEquals(1503007768, Arrays.hashCode(new JpegCoefficientPlane(converted, 50).getCoefficients()));
+	}
+
+	/**
+	 * Copy-on-write images are TYPE_CUSTOM and read with getRGB, which must give the same
+	 * coefficients as reading the original image
+	 */
+	@Test
+	public void testCoefficientsOfCopyOnWriteImage() {
+		BufferedImage copy = ColorUtils.copyOnWriteBufferedImage(convert(BufferedImage.TYPE_3BYTE_BGR));
+		assertEquals(BufferedImage.TYPE_CUSTOM, copy.getType());
+		assertEquals(197105659, Arrays.hashCode(new JpegCoefficientPlane(copy, 80).getCoefficients()));
+	}
+}
@@ -0,0 +1,63 @@
+package org.stegosuite.image.jpgtemp.james;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.stegosuite.image.format.JPGImage;
+import org.stegosuite.model.exception.SteganoImageException;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class JpegEncoderTest {
+
+	private BufferedImage image = null;
+
+	@Before
+	public void beforeMethod()
+			throws SteganoImageException {
+		JPGImage jpg = new JPGImage();
+		jpg.load(new File(this.getClass().getClassLoader().getResource("landscape.jpg").getFile()));
+		image = jpg.getBufferedImage();
+	}
+
+	private BufferedImage convert(int imageType) {
+		BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), imageType);
+		converted.getGraphics().drawImage(image, 0, 0, null);
+		return converted;
+	}
+
+	private static byte[] compress(BufferedImage image, int quality) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new JpegEncoder(image, quality, out, "").Compress();
+		return out.toByteArray();
+	}
+
+	private static void assertEncoded(byte[] encoded, int length, int hash) {
+		assertEquals(length, encoded.length);
+		assertEquals(hash, Arrays.hashCode(encoded));
+	}
+
+	/**
+	 * The expected values were computed with the original Huffman encoder.
+	 */
+	@Test
+	public void testCompress() {
+		for (int imageType : new int[] { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+				BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR }) {
+			BufferedImage converted = convert(imageType);
+			assertEncoded(compress(converted, 80), 33038, -1658030821);
+			assertEncoded(compress(converted, 50), 17983, -17558555);
+		}
+	}
+
+	@Test
+	public void testCompressOtherImageTypes() {
+		BufferedImage converted = convert(BufferedImage.TYPE_USHORT_565_RGB);
+		assertEncoded(compress(converted, 80), 36142, 736472678);
+		assertEncoded(compress(converted, 50), 18486, 1700204101);
+	}
+}
@@ -0,0 +1,114 @@
+package org.stegosuite.image.jpgtemp.net.f5.ortega;
+
+import org.junit.Test;
+import org.stegosuite.image.jpgtemp.james.JpegEncoder;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CoefficientDecoderTest {
+
+	/**
+	 * Width and height of an MCU, the chroma components are subsampled 2:1 in both directions
+	 */
+	private static final int MCU_SIZE = 16;
+
+	private static BufferedImage createImage(int width, int height, long seed) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Random random = new Random(seed);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				// A gradient with noise, so the blocks have both small and large coefficients
+				int gray = (x * 255 / width + y * 255 / height) / 2;
+				image.setRGB(x, y, (gray + random.nextInt(64)) << 16 | gray << 8 | random.nextInt(256));
+			}
+		}
+		return image;
+	}
+
+	private static byte[] encode(BufferedImage image, int restartInterval) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JpegEncoder encoder = new JpegEncoder(image, 80, out, "");
+		encoder.setRestartInterval(restartInterval);
+		encoder.Compress();
+		return out.toByteArray();
+	}
+
+	private static void assertDecodesLikeHuffmanDecode(byte[] jpeg) {
+		int[] expected;
+		try {
+			expected = new HuffmanDecode(jpeg).decode();
+		} catch (RuntimeException e) {
+			// Corrupt codes can overrun a block, which has to fail the same way
+			try {
+				new CoefficientDecoder(ByteBuffer.wrap(jpeg)).decode();
+				fail("Expected " + e);
+			} catch (RuntimeException actual) {
+				assertEquals(e.getClass(), actual.getClass());
+			}
+			return;
+		}
+		assertArrayEquals(expected, new CoefficientDecoder(ByteBuffer.wrap(jpeg)).decode());
+	}
+
+	@Test
+	public void testRestartIntervals() {
+		int width = 75;
+		int height = 50;
+		int mcusPerRow = (width + MCU_SIZE - 1) / MCU_SIZE;
+		int mcuCount = mcusPerRow * ((height + MCU_SIZE - 1) / MCU_SIZE);
+		BufferedImage image = createImage(width, height, 1);
+
+		for (int restartInterval : new int[] { 0, 1, 2, 3, mcusPerRow, mcuCount, 1000 }) {
+			assertDecodesLikeHuffmanDecode(encode(image, restartInterval));
+		}
+	}
+
+	@Test
+	public void testMismatchedRestartInterval() {
+		byte[] jpeg = encode(createImage(75, 50, 5), 2);
+		int dri = 2;
+		while (!((jpeg[dri - 2] & 0xFF) == 0xFF && (jpeg[dri - 1] & 0xFF) == 0xDD)) {
+			dri++;
+		}
+
+		// A DRI that doesn't match the markers leaves markers over, or makes intervals end off them
+		for (int restartInterval : new int[] { 1, 3, 4, 19 }) {
+			byte[] mismatched = jpeg.clone();
+			mismatched[dri + 2] = (byte) (restartInterval >> 8);
+			mismatched[dri + 3] = (byte) restartInterval;
+			assertDecodesLikeHuffmanDecode(mismatched);
+		}
+	}
+
+	@Test
+	public void testTruncatedFile() {
+		byte[] jpeg = encode(createImage(64, 48, 2), 2);
+
+		// Cut the scan short in front of, within and right behind a restart marker
+		for (int length = jpeg.length - 2; length > jpeg.length / 2; length -= 37) {
+			assertDecodesLikeHuffmanDecode(Arrays.copyOf(jpeg, length));
+		}
+	}
+
+	@Test
+	public void testCorruptScan() {
+		byte[] jpeg = encode(createImage(64, 48, 3), 3);
+		Random random = new Random(4);
+
+		// Flipped bits can hide or forge restart markers, which falls back to sequential decoding
+		for (int i = 0; i < 20; i++) {
+			byte[] corrupt = jpeg.clone();
+			int offset = jpeg.length / 2 + random.nextInt(jpeg.length / 2 - 2);
+			corrupt[offset] ^= 1 << random.nextInt(8);
+			assertDecodesLikeHuffmanDecode(corrupt);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package org.stegosuite.util;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BitReaderTest {
+
+	private static int bitAt(byte[] data, int offset) {
+		return (data[offset / 8] >>> (7 - offset % 8)) & 1;
+	}
+
+	@Test
+	public void testReadBitsMatchesSingleBits() {
+		byte[] data = new byte[100];
+		new Random(1).nextBytes(data);
+
+		// Read chunks of 1, 3 and 64 bits and any other size in between
+		Random random = new Random(2);
+		BitReader reader = new BitReader(data);
+		while (reader.hasNext()) {
+			int offset = reader.position();
+			int count = Math.min(reader.remaining(), random.nextInt(65));
+			long bits = reader.readBits(count);
+			for (int i = 0; i < count; i++) {
+				assertEquals(bitAt(data, offset + i), (bits >>> (count - 1 - i)) & 1);
+			}
+		}
+		assertEquals(800, reader.position());
+	}
+
+	@Test
+	public void testReadBitAfterSeek() {
+		byte[] data = new byte[] { (byte) 0b10110010, (byte) 0b01000000 };
+		BitReader reader = new BitReader(data, 10);
+		reader.seek(6);
+		assertEquals(1, reader.readBit());
+		assertEquals(0, reader.readBit());
+		assertEquals(0b01, reader.readBits(2));
+		assertFalse(reader.hasNext());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testReadBeyondLength() {
+		BitReader reader = new BitReader(new byte[1], 3);
+		reader.readBits(4);
+	}
+}
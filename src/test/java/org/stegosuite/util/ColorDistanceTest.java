@@ -0,0 +1,79 @@
+package org.stegosuite.util;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ColorDistanceTest {
+
+	@Test
+	public void testDistanceMatrixMatchesDistance() {
+		Random random = new Random(1);
+		List<Color> colors = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			colors.add(new Color(random.nextInt(1 << 24)));
+		}
+		colors.add(colors.get(0));
+
+		for (ColorDistance distance : ColorDistance.values()) {
+			double[] matrix = distance.getDistanceMatrix(colors);
+			for (int i = 0; i < colors.size(); i++) {
+				for (int j = 0; j < colors.size(); j++) {
+					int rgb1 = colors.get(i).getRGB();
+					int rgb2 = colors.get(j).getRGB();
+					assertEquals(matrix[i * colors.size() + j], distance.distance(rgb1, rgb2), 0.0);
+					assertEquals(distance.distance(rgb1, rgb2), distance.distance(rgb2, rgb1), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCachedDistancesMatch() {
+		int[] rgbs = new Random(2).ints(20, 0, 1 << 24).toArray();
+		double[] uncached = new double[rgbs.length * rgbs.length];
+		for (int i = 0; i < uncached.length; i++) {
+			uncached[i] = ColorDistance.CIEDE_2000.distance(rgbs[i / rgbs.length], rgbs[i % rgbs.length]);
+		}
+
+		// Each distance is computed once with the cache enabled, then read from it
+		ColorDistance.setCacheCapacity(1 << 10);
+		try {
+			for (int pass = 0; pass < 2; pass++) {
+				for (int i = 0; i < uncached.length; i++) {
+					assertEquals(uncached[i],
+							ColorDistance.CIEDE_2000.distance(rgbs[i / rgbs.length], rgbs[i % rgbs.length]), 0.0);
+				}
+			}
+		} finally {
+			ColorDistance.setCacheCapacity(0);
+		}
+	}
+
+	@Test
+	public void testCacheEvictsEntries() {
+		DistanceCache cache = new DistanceCache(16);
+		assertEquals(16, cache.capacity());
+
+		for (int rgb = 1; rgb <= 1000; rgb++) {
+			cache.put(DistanceCache.key(0, rgb), rgb);
+		}
+
+		// Evicted keys are missing, all others map to their own value
+		int cached = 0;
+		for (int rgb = 1; rgb <= 1000; rgb++) {
+			double value = cache.get(DistanceCache.key(rgb, 0));
+			if (!Double.isNaN(value)) {
+				assertEquals(rgb, value, 0.0);
+				cached++;
+			}
+		}
+		assertTrue(cached > 0 && cached <= 16);
+	}
+}
@@ -0,0 +1,49 @@
+package org.stegosuite.util;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ColorUtilsTest {
+
+	@Test
+	public void testSortColorsOrdersGrayscale() {
+		List<Color> colors = new ArrayList<>();
+		for (int i = 0; i < 256; i += 5) {
+			colors.add(new Color(i, i, i));
+		}
+		Collections.shuffle(colors, new Random(1));
+
+		for (ColorDistance distance : ColorDistance.values()) {
+			List<Color> sorted = ColorUtils.sortColors(colors, distance);
+			assertEquals(colors.size(), sorted.size());
+
+			// The nearest neighbour tour walks from one end of the gray scale to the other
+			int step = sorted.get(1).getRed() - sorted.get(0).getRed();
+			assertEquals(5, Math.abs(step));
+			for (int i = 1; i < sorted.size(); i++) {
+				assertEquals(step, sorted.get(i).getRed() - sorted.get(i - 1).getRed());
+			}
+		}
+	}
+
+	@Test
+	public void testSortColorsIsDeterministic() {
+		List<Color> colors = new ArrayList<>();
+		Random random = new Random(2);
+		for (int i = 0; i < 64; i++) {
+			colors.add(new Color(random.nextInt(4) * 60, random.nextInt(4) * 60, random.nextInt(4) * 60));
+		}
+
+		List<Color> sorted = ColorUtils.sortColors(colors, ColorDistance.RGB_EUCLID);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(sorted, ColorUtils.sortColors(colors, ColorDistance.RGB_EUCLID));
+		}
+	}
+}
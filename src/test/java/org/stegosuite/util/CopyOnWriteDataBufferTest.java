@@ -0,0 +1,147 @@
+package org.stegosuite.util;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class CopyOnWriteDataBufferTest {
+
+	private static final int[] IMAGE_TYPES = { BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+			BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_USHORT_565_RGB,
+			BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_BYTE_GRAY };
+
+	private static BufferedImage randomImage(int imageType) {
+		BufferedImage image = new BufferedImage(100, 80, imageType);
+		Random random = new Random(1);
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Fills two data buffers of the passed type with the same random elements
+	 */
+	private static DataBuffer[] randomBuffers(int dataType, int size, int banks) {
+		DataBuffer[] buffers = new DataBuffer[2];
+		for (int i = 0; i < buffers.length; i++) {
+			switch (dataType) {
+				case DataBuffer.TYPE_BYTE:
+					buffers[i] = new DataBufferByte(size, banks);
+					break;
+				case DataBuffer.TYPE_USHORT:
+					buffers[i] = new DataBufferUShort(size, banks);
+					break;
+				case DataBuffer.TYPE_SHORT:
+					buffers[i] = new DataBufferShort(size, banks);
+					break;
+				default:
+					buffers[i] = new DataBufferInt(size, banks);
+			}
+		}
+		Random random = new Random(dataType);
+		for (int bank = 0; bank < banks; bank++) {
+			for (int i = 0; i < size; i++) {
+				int value = random.nextInt();
+				buffers[0].setElem(bank, i, value);
+				buffers[1].setElem(bank, i, value);
+			}
+		}
+		return buffers;
+	}
+
+	@Test
+	public void testCopyIsIndependentOfSource() {
+		BufferedImage source = randomImage(BufferedImage.TYPE_3BYTE_BGR);
+		BufferedImage expected = ColorUtils.cloneBufferedImage(source);
+		BufferedImage copy = ColorUtils.copyOnWriteBufferedImage(source);
+		int sourceRgb = source.getRGB(10, 20);
+
+		copy.setRGB(10, 20, 0xFF123456);
+		expected.setRGB(10, 20, 0xFF123456);
+
+		for (int y = 0; y < source.getHeight(); y++) {
+			for (int x = 0; x < source.getWidth(); x++) {
+				assertEquals(expected.getRGB(x, y), copy.getRGB(x, y));
+			}
+		}
+		assertEquals(0xFF123456, copy.getRGB(10, 20));
+		assertEquals(sourceRgb, source.getRGB(10, 20));
+		assertEquals(1, ((CopyOnWriteDataBuffer) copy.getRaster().getDataBuffer()).getCopiedTileCount());
+	}
+
+	@Test
+	public void testWritesToEachBankAndDataType() {
+		// The last tile is only partly used
+		int size = 3 * CopyOnWriteDataBuffer.TILE_SIZE + 17;
+		int banks = 3;
+		for (int dataType : new int[] { DataBuffer.TYPE_BYTE, DataBuffer.TYPE_USHORT, DataBuffer.TYPE_SHORT,
+				DataBuffer.TYPE_INT }) {
+			DataBuffer[] buffers = randomBuffers(dataType, size, banks);
+			DataBuffer source = buffers[0];
+			DataBuffer expected = buffers[1];
+			CopyOnWriteDataBuffer copy = new CopyOnWriteDataBuffer(source);
+			assertEquals(dataType, copy.getDataType());
+			assertEquals(size, copy.getSize());
+			assertEquals(banks, copy.getNumBanks());
+
+			// One write into the first tile of each bank, and one into the last tile of the last bank
+			int[][] writes = { { 0, 5, -1 }, { 1, 1000, 0x8000 }, { 2, 0, 0x7F }, { 2, size - 1, -32768 } };
+			for (int[] write : writes) {
+				copy.setElem(write[0], write[1], write[2]);
+				expected.setElem(write[0], write[1], write[2]);
+			}
+			assertEquals(writes.length, copy.getCopiedTileCount());
+
+			DataBuffer unchanged = randomBuffers(dataType, size, banks)[0];
+			for (int bank = 0; bank < banks; bank++) {
+				for (int i = 0; i < size; i++) {
+					assertEquals(expected.getElem(bank, i), copy.getElem(bank, i));
+					assertEquals(unchanged.getElem(bank, i), source.getElem(bank, i));
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedDataType() {
+		new CopyOnWriteDataBuffer(new DataBufferFloat(16));
+	}
+
+	/**
+	 * Copy-on-write images are TYPE_CUSTOM, their clones must get back the original type so they
+	 * don't fall back to slow paths
+	 */
+	@Test
+	public void testCloneKeepsImageType() {
+		for (int imageType : IMAGE_TYPES) {
+			BufferedImage source = randomImage(imageType);
+			BufferedImage copy = ColorUtils.copyOnWriteBufferedImage(source);
+			assertEquals(BufferedImage.TYPE_CUSTOM, copy.getType());
+			copy.setRGB(10, 20, 0xFF123456);
+
+			for (BufferedImage clone : new BufferedImage[] { ColorUtils.cloneBufferedImage(copy),
+					ColorUtils.cloneBufferedImage(copy, imageType) }) {
+				assertEquals(imageType, clone.getType());
+				assertFalse(clone.getRaster().getDataBuffer() instanceof CopyOnWriteDataBuffer);
+				for (int y = 0; y < source.getHeight(); y++) {
+					for (int x = 0; x < source.getWidth(); x++) {
+						assertEquals(copy.getRGB(x, y), clone.getRGB(x, y));
+					}
+				}
+			}
+		}
+	}
+}